@@ -0,0 +1,130 @@
+package com.patterns.structural.decorator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cost of every decorator on its own and of the usual chain orders, writing and reading
+ * {@code size} bytes of CSV like records.
+ *
+ * In-memory chains write to a sink that drops the bytes and read from a buffer prepared during
+ * setup, so only the decorators are measured; the {@code *File} chains include the file system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 8, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+public class DecoratorBenchmark {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Param({"1024", "1048576", "104857600"})
+    private int size;
+
+    @Param({"compression", "encryption", "base64", "file", "compressionEncryption", "encryptionCompression",
+            "compressionEncryptionFile"})
+    private String chain;
+
+    private byte[] payload;
+    private DataSource writer;
+    private DataSource reader;
+    private Path file;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+
+    @Setup
+    public void setup() throws IOException {
+        payload = records(size);
+        file = Files.createTempFile("decorator-benchmark", ".dat");
+        UnaryOperator<DataSource> layers = layers(chain);
+        if (chain.equals("file") || chain.endsWith("File")) {
+            writer = layers.apply(new FileDataSource(file.toString()));
+            reader = writer;
+        } else {
+            writer = layers.apply(new DiscardingDataSource());
+            reader = layers.apply(new ByteArrayDataSource());
+        }
+        try (OutputStream out = reader.openOutputStream()) {
+            out.write(payload);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        try (OutputStream out = writer.openOutputStream()) {
+            for (int off = 0; off < payload.length; off += CHUNK_SIZE) {
+                out.write(payload, off, Math.min(CHUNK_SIZE, payload.length - off));
+            }
+        }
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long total = 0;
+        try (InputStream in = reader.openInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    private static UnaryOperator<DataSource> layers(String chain) {
+        switch (chain) {
+            case "compression":
+                return CompressionDecorator::new;
+            case "encryption":
+                return EncryptionDecorator::new;
+            case "base64":
+                return Base64Decorator::new;
+            case "file":
+                return source -> source;
+            case "compressionEncryption":
+            case "compressionEncryptionFile":
+                return source -> new CompressionDecorator(new EncryptionDecorator(source));
+            case "encryptionCompression":
+                return source -> new EncryptionDecorator(new CompressionDecorator(source));
+            default:
+                throw new IllegalArgumentException("Unknown chain " + chain);
+        }
+    }
+
+    private static byte[] records(int size) {
+        Random random = new Random(42);
+        StringBuilder records = new StringBuilder(size + 64).append("Name,Salary\n");
+        while (records.length() < size) {
+            records.append("Employee ").append(random.nextInt(100_000)).append(',')
+                    .append(random.nextInt(1_000_000)).append('\n');
+        }
+        records.setLength(size);
+        return records.toString().getBytes();
+    }
+
+    private static class DiscardingDataSource implements DataSource {
+
+        @Override
+        public OutputStream openOutputStream() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return InputStream.nullInputStream();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.patterns;
 
+import com.patterns.structural.decorator.DataSourceMetrics;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class DesignPatternsApplication {
@@ -10,4 +12,9 @@ public class DesignPatternsApplication {
         SpringApplication.run(DesignPatternsApplication.class, args);
     }
 
+    @Bean
+    public DataSourceMetrics dataSourceMetrics() {
+        return DataSourceMetrics.global();
+    }
+
 }
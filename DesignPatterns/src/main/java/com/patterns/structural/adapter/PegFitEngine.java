@@ -0,0 +1,255 @@
+package com.patterns.structural.adapter;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Matches many pegs against many round holes without an adapter per check. Pegs are given as plain
+ * radii; square pegs are converted once with {@link #adaptedRadius(double)}, which computes exactly
+ * what {@link SquarePegAdapter#getRadius()} does. Hole radii are kept sorted so that a lookup is a
+ * binary search, and every answer agrees with {@link RoundHole#fits(RoundPeg)}.
+ *
+ * Hole and peg indexes always refer to positions in the arrays the caller passed in.
+ */
+public class PegFitEngine {
+
+    /**
+     * Batches smaller than this are not worth splitting across threads.
+     */
+    private static final int PARALLEL_THRESHOLD = 8_192;
+
+    private final double[] sortedRadii;
+    private final int[] sortedHoles;
+    // Holes with a NaN radius sort last and fit no peg.
+    private final int comparableCount;
+
+    public PegFitEngine(double[] holeRadii) {
+        this.sortedHoles = sortedIndexes(holeRadii);
+        this.sortedRadii = new double[holeRadii.length];
+        int comparable = 0;
+        for (int i = 0; i < sortedHoles.length; i++) {
+            sortedRadii[i] = holeRadii[sortedHoles[i]];
+            if (!Double.isNaN(sortedRadii[i])) {
+                comparable = i + 1;
+            }
+        }
+        this.comparableCount = comparable;
+    }
+
+    public static PegFitEngine of(RoundHole... holes) {
+        double[] radii = new double[holes.length];
+        for (int i = 0; i < holes.length; i++) {
+            radii[i] = holes[i].getRadius();
+        }
+        return new PegFitEngine(radii);
+    }
+
+    /**
+     * Radius of the smallest circle around a square peg of the given width.
+     */
+    public static double adaptedRadius(double width) {
+        return (Math.sqrt(Math.pow((width / 2), 2) * 2));
+    }
+
+    public static double[] adaptedRadii(double[] widths) {
+        double[] radii = new double[widths.length];
+        forEach(widths.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                radii[i] = adaptedRadius(widths[i]);
+            }
+        });
+        return radii;
+    }
+
+    public int getHoleCount() {
+        return sortedHoles.length;
+    }
+
+    public int countFitting(double pegRadius) {
+        return comparableCount - firstFitting(pegRadius);
+    }
+
+    /**
+     * Indexes of every hole the peg fits in, from the smallest hole to the largest.
+     */
+    public int[] holesFitting(double pegRadius) {
+        return Arrays.copyOfRange(sortedHoles, firstFitting(pegRadius), comparableCount);
+    }
+
+    /**
+     * Index of the smallest hole the peg fits in, or -1.
+     */
+    public int smallestFitting(double pegRadius) {
+        int first = firstFitting(pegRadius);
+        return first < comparableCount ? sortedHoles[first] : -1;
+    }
+
+    /**
+     * {@link #smallestFitting(double)} for every peg; holes may be shared between pegs.
+     */
+    public int[] smallestFitting(double[] pegRadii) {
+        int[] holes = new int[pegRadii.length];
+        forEach(pegRadii.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                holes[i] = smallestFitting(pegRadii[i]);
+            }
+        });
+        return holes;
+    }
+
+    /**
+     * Assigns each hole to at most one peg, giving every peg the smallest free hole it fits in. Pegs
+     * are served from the smallest up, which places as many pegs as any assignment can. Returns the
+     * hole of each peg, or -1 for pegs left without one.
+     */
+    public int[] assign(double[] pegRadii) {
+        int[] pegs = sortedIndexes(pegRadii);
+        int[] holes = new int[pegRadii.length];
+        Arrays.fill(holes, -1);
+        int hole = 0;
+        for (int peg : pegs) {
+            double radius = pegRadii[peg];
+            if (Double.isNaN(radius)) {
+                break;
+            }
+            while (hole < comparableCount && !(sortedRadii[hole] >= radius)) {
+                hole++;
+            }
+            if (hole == comparableCount) {
+                break;
+            }
+            holes[peg] = sortedHoles[hole++];
+        }
+        return holes;
+    }
+
+    /**
+     * Position of the first sorted hole with {@code radius >= pegRadius}, the comparison of
+     * {@link RoundHole#fits(RoundPeg)}.
+     */
+    private int firstFitting(double pegRadius) {
+        int low = 0;
+        int high = comparableCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedRadii[mid] >= pegRadius) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        // A NaN peg fits nowhere.
+        return Double.isNaN(pegRadius) ? comparableCount : low;
+    }
+
+    /**
+     * Indexes of {@code values} in {@link Double#compare} order, so NaN last. Ties keep their
+     * original order. Large arrays are merge sorted in parallel.
+     */
+    static int[] sortedIndexes(double[] values) {
+        int[] indexes = new int[values.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        new MergeSort(values, indexes, new int[indexes.length], 0, indexes.length).invoke();
+        return indexes;
+    }
+
+    private static void forEach(int size, Range range) {
+        if (size < PARALLEL_THRESHOLD) {
+            range.apply(0, size);
+        } else {
+            ForkJoinPool.commonPool().invoke(new RangeTask(range, 0, size));
+        }
+    }
+
+    private interface Range {
+        void apply(int from, int to);
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Range range;
+        private final int from;
+        private final int to;
+
+        RangeTask(Range range, int from, int to) {
+            this.range = range;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                range.apply(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(range, from, mid), new RangeTask(range, mid, to));
+        }
+    }
+
+    private static class MergeSort extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] keys;
+        private final int[] indexes;
+        private final int[] scratch;
+        private final int from;
+        private final int to;
+
+        MergeSort(double[] keys, int[] indexes, int[] scratch, int from, int to) {
+            this.keys = keys;
+            this.indexes = indexes;
+            this.scratch = scratch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 32) {
+                insertionSort();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            MergeSort left = new MergeSort(keys, indexes, scratch, from, mid);
+            MergeSort right = new MergeSort(keys, indexes, scratch, mid, to);
+            if (to - from < PARALLEL_THRESHOLD) {
+                left.compute();
+                right.compute();
+            } else {
+                invokeAll(left, right);
+            }
+            if (Double.compare(keys[indexes[mid - 1]], keys[indexes[mid]]) <= 0) {
+                return;
+            }
+            System.arraycopy(indexes, from, scratch, from, to - from);
+            int i = from;
+            int j = mid;
+            for (int k = from; k < to; k++) {
+                if (j >= to || (i < mid && Double.compare(keys[scratch[i]], keys[scratch[j]]) <= 0)) {
+                    indexes[k] = scratch[i++];
+                } else {
+                    indexes[k] = scratch[j++];
+                }
+            }
+        }
+
+        private void insertionSort() {
+            for (int i = from + 1; i < to; i++) {
+                int index = indexes[i];
+                double key = keys[index];
+                int j = i - 1;
+                while (j >= from && Double.compare(keys[indexes[j]], key) > 0) {
+                    indexes[j + 1] = indexes[j];
+                    j--;
+                }
+                indexes[j + 1] = index;
+            }
+        }
+    }
+}
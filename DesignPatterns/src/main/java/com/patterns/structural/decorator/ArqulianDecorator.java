@@ -1,5 +1,9 @@
 package com.patterns.structural.decorator;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public class ArqulianDecorator extends DataSourceDecorator {
 
     public ArqulianDecorator(DataSource dataSource) {
@@ -7,13 +11,14 @@ public class ArqulianDecorator extends DataSourceDecorator {
     }
 
     @Override
-    public void writeData(String data) {
+    public OutputStream openOutputStream() throws IOException {
         System.out.println("To Arquillian process");
-        super.writeData(data);
+        return super.openOutputStream();
     }
+
     @Override
-    public String readData() {
+    public InputStream openInputStream() throws IOException {
         System.out.println("From Arquillian process");
-        return super.readData();
+        return super.openInputStream();
     }
 }
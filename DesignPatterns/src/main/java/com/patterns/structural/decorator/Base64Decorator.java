@@ -0,0 +1,27 @@
+package com.patterns.structural.decorator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+
+/**
+ * Text boundary for chains whose sink only accepts text. Place it once, right above the sink,
+ * instead of letting every layer encode its own output.
+ */
+public class Base64Decorator extends DataSourceDecorator {
+
+    public Base64Decorator(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+        return Base64.getEncoder().wrap(super.openOutputStream());
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        return Base64.getDecoder().wrap(super.openInputStream());
+    }
+}
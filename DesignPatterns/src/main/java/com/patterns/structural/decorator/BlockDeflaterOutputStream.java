@@ -0,0 +1,144 @@
+package com.patterns.structural.decorator;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
+
+/**
+ * Splits the stream into fixed size blocks and deflates them concurrently, pigz style.
+ *
+ * Every block is written as a frame {@code [raw length][compressed length][deflated bytes]} and the
+ * stream ends with a frame whose raw length is {@code -1}. The frame headers act as the block index:
+ * a reader can skip any block without inflating it.
+ */
+class BlockDeflaterOutputStream extends OutputStream {
+
+    static final int END_OF_BLOCKS = -1;
+
+    private final DataOutputStream out;
+    private final Executor executor;
+    private final int level;
+    private final int maxInFlight;
+    private final ArrayDeque<CompletableFuture<Frame>> pending = new ArrayDeque<>();
+
+    private byte[] block;
+    private int count;
+    private boolean closed;
+
+    BlockDeflaterOutputStream(OutputStream out, Executor executor, int level, int blockSize, int maxInFlight)
+            throws IOException {
+        this.out = new DataOutputStream(out);
+        this.executor = executor;
+        this.level = level;
+        this.maxInFlight = maxInFlight;
+        this.block = new byte[blockSize];
+        this.out.writeInt(blockSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == block.length) {
+            submitBlock();
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == block.length) {
+                submitBlock();
+            }
+            int chunk = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, chunk);
+            count += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeFrame(pending.poll());
+            }
+            out.writeInt(END_OF_BLOCKS);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        byte[] raw = block;
+        int length = count;
+        pending.add(CompletableFuture.supplyAsync(() -> new Frame(length, deflate(raw, length, level)), executor));
+        block = new byte[raw.length];
+        count = 0;
+        while (pending.size() >= maxInFlight) {
+            writeFrame(pending.poll());
+        }
+    }
+
+    private void writeFrame(CompletableFuture<Frame> future) throws IOException {
+        Frame frame;
+        try {
+            frame = future.join();
+        } catch (CompletionException ex) {
+            throw new IOException("Block compression failed", ex.getCause());
+        }
+        out.writeInt(frame.rawLength);
+        out.writeInt(frame.data.length);
+        out.write(frame.data);
+    }
+
+    static byte[] deflate(byte[] raw, int length, int level) {
+        Deflater deflater = CompressorPool.borrowDeflater(level);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            // Sized for incompressible input so the common case never grows the array.
+            byte[] result = new byte[(int) Math.min(Integer.MAX_VALUE - 8, deflateBound(length))];
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                size += deflater.deflate(result, size, result.length - size);
+            }
+            return Arrays.copyOf(result, size);
+        } finally {
+            CompressorPool.release(deflater, level);
+        }
+    }
+
+    /**
+     * Upper bound of the deflated size of {@code length} bytes, above zlib's own bound for every level.
+     */
+    static long deflateBound(int length) {
+        return length + (length >> 8) + 64L;
+    }
+
+    private static class Frame {
+        final int rawLength;
+        final byte[] data;
+
+        Frame(int rawLength, byte[] data) {
+            this.rawLength = rawLength;
+            this.data = data;
+        }
+    }
+}
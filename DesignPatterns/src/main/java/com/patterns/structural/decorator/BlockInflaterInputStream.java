@@ -0,0 +1,184 @@
+package com.patterns.structural.decorator;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the frames written by {@link BlockDeflaterOutputStream}, inflating up to {@code maxInFlight}
+ * blocks ahead of the reader on the given executor.
+ */
+class BlockInflaterInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final int blockSize;
+    private final ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] block = new byte[0];
+    private int position;
+    private boolean endOfBlocks;
+
+    /**
+     * Expects {@code in} to be positioned right after the format marker.
+     */
+    BlockInflaterInputStream(InputStream in, Executor executor, int maxInFlight) throws IOException {
+        this.in = new DataInputStream(in);
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.blockSize = readBlockSize(this.in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, block.length - position);
+        System.arraycopy(block, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return block.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pending.clear();
+        in.close();
+    }
+
+    private boolean fill() throws IOException {
+        while (position == block.length) {
+            while (!endOfBlocks && pending.size() < maxInFlight) {
+                Header header = Header.read(in, blockSize);
+                if (header == null) {
+                    endOfBlocks = true;
+                } else {
+                    byte[] data = header.readData(in);
+                    pending.add(CompletableFuture.supplyAsync(() -> inflate(data, header.rawLength), executor));
+                }
+            }
+            if (pending.isEmpty()) {
+                return false;
+            }
+            block = join(pending.poll());
+            position = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the block size written at the start of the stream.
+     */
+    static int readBlockSize(DataInputStream in) throws IOException {
+        int blockSize = in.readInt();
+        if (blockSize <= 0) {
+            throw new IOException("Corrupt block stream: block size " + blockSize);
+        }
+        return blockSize;
+    }
+
+    static byte[] join(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            throw new IOException("Block decompression failed", ex.getCause());
+        }
+    }
+
+    static byte[] inflate(byte[] data, int rawLength) {
+        Inflater inflater = CompressorPool.borrowInflater();
+        try {
+            inflater.setInput(data);
+            byte[] result = new byte[rawLength];
+            int size = 0;
+            while (size < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(result, size, rawLength - size);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed block");
+                }
+                size += n;
+            }
+            if (size < rawLength) {
+                throw new IllegalStateException("Compressed block holds " + size + " bytes, header says " + rawLength);
+            }
+            return result;
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        } finally {
+            CompressorPool.release(inflater);
+        }
+    }
+
+    static class Header {
+        final int rawLength;
+        final int compressedLength;
+
+        private Header(int rawLength, int compressedLength) {
+            this.rawLength = rawLength;
+            this.compressedLength = compressedLength;
+        }
+
+        /**
+         * Validates the lengths against {@code blockSize} before anything is allocated for them.
+         *
+         * @return the next block header, or null once the end of blocks frame is reached
+         */
+        static Header read(DataInputStream in, int blockSize) throws IOException {
+            int rawLength = in.readInt();
+            if (rawLength == BlockDeflaterOutputStream.END_OF_BLOCKS) {
+                return null;
+            }
+            int compressedLength = in.readInt();
+            if (rawLength <= 0 || rawLength > blockSize || compressedLength < 0
+                    || compressedLength > BlockDeflaterOutputStream.deflateBound(blockSize)) {
+                throw new IOException("Corrupt block header: raw length " + rawLength + ", compressed length "
+                        + compressedLength + ", block size " + blockSize);
+            }
+            return new Header(rawLength, compressedLength);
+        }
+
+        byte[] readData(DataInputStream in) throws IOException {
+            byte[] data = new byte[compressedLength];
+            in.readFully(data);
+            return data;
+        }
+
+        void skipData(DataInputStream in) throws IOException {
+            int remaining = compressedLength;
+            while (remaining > 0) {
+                int n = in.skipBytes(remaining);
+                if (n == 0) {
+                    if (in.read() == -1) {
+                        throw new EOFException();
+                    }
+                    n = 1;
+                }
+                remaining -= n;
+            }
+        }
+    }
+}
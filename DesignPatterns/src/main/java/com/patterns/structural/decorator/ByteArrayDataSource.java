@@ -0,0 +1,41 @@
+package com.patterns.structural.decorator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * In-memory sink, handy to run a decorator chain over a single buffer.
+ */
+public class ByteArrayDataSource implements DataSource {
+
+    private byte[] data;
+
+    public ByteArrayDataSource() {
+        this(new byte[0]);
+    }
+
+    public ByteArrayDataSource(byte[] data) {
+        this.data = data;
+    }
+
+    public byte[] toByteArray() {
+        return data;
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+        return new ByteArrayOutputStream(BUFFER_SIZE) {
+            @Override
+            public void close() {
+                data = toByteArray();
+            }
+        };
+    }
+
+    @Override
+    public InputStream openInputStream() {
+        return new ByteArrayInputStream(data);
+    }
+}
@@ -0,0 +1,128 @@
+package com.patterns.structural.decorator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache for whatever the wrapped chain decodes. After the first full read the content is
+ * served from a {@link DataCache} until this decorator writes, or until the version reported by the
+ * wrapped source (file modification time and size) changes.
+ */
+public class CachingDecorator extends DataSourceDecorator {
+
+    private final DataCache cache;
+    private final AtomicLong writes = new AtomicLong();
+
+    public CachingDecorator(DataSource dataSource) {
+        this(dataSource, DataCache.shared());
+    }
+
+    public CachingDecorator(DataSource dataSource, DataCache cache) {
+        super(dataSource);
+        this.cache = cache;
+    }
+
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+        writes.incrementAndGet();
+        cache.invalidate(this);
+        return new FilterOutputStream(super.openOutputStream()) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    writes.incrementAndGet();
+                    cache.invalidate(CachingDecorator.this);
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        String version = getVersion();
+        byte[] cached = cache.get(this, version);
+        if (cached != null) {
+            return new ByteArrayInputStream(cached);
+        }
+        return new CachingInputStream(super.openInputStream(), version, writes.get());
+    }
+
+    /**
+     * Copies what is read into a buffer and caches it once the end of the stream is reached, unless
+     * the content outgrows the cache or a write happened in the meantime.
+     */
+    private class CachingInputStream extends FilterInputStream {
+
+        private final String version;
+        private final long writesAtOpen;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream(BUFFER_SIZE);
+
+        CachingInputStream(InputStream in, String version, long writesAtOpen) {
+            super(in);
+            this.version = version;
+            this.writesAtOpen = writesAtOpen;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                complete();
+            } else if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n == -1) {
+                complete();
+            } else if (copy != null) {
+                copy.write(b, off, n);
+                checkLimit();
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would leave a hole in the copy, stop caching this read.
+            copy = null;
+            return in.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void checkLimit() {
+            if (copy.size() > cache.getMaxBytes()) {
+                copy = null;
+            }
+        }
+
+        private void complete() {
+            if (copy != null && writes.get() == writesAtOpen) {
+                cache.put(CachingDecorator.this, version, copy.toByteArray());
+            }
+            copy = null;
+        }
+    }
+}
@@ -1,21 +1,46 @@
 package com.patterns.structural.decorator;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Base64;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.InflaterInputStream;
 
 public class CompressionDecorator extends DataSourceDecorator {
 
+    private static final FormatMarker FORMAT = new FormatMarker(0xC1);
+    private static final int BLOCK_FORMAT = 0xC2;
+
     private int compLevel = 6;
+    private Executor executor;
+    private int blockSize;
+    private int maxInFlight;
 
     public CompressionDecorator(DataSource dataSource) {
         super(dataSource);
     }
 
+    /**
+     * Block parallel mode: input is split into {@code blockSize} blocks that are compressed and
+     * decompressed concurrently on {@code executor}.
+     */
+    public CompressionDecorator(DataSource dataSource, Executor executor, int blockSize) {
+        super(dataSource);
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+    }
+
     public int getCompressionLevel() {
         return compLevel;
     }
@@ -24,46 +49,140 @@ public class CompressionDecorator extends DataSourceDecorator {
         compLevel = value;
     }
 
-    @Override
-    public void writeData(String data) {
-        super.writeData(compress(data));
+    public int getMaxBlocksInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Bounds the memory used by block parallel mode to roughly {@code value * blockSize} per stream.
+     */
+    public void setMaxBlocksInFlight(int value) {
+        maxInFlight = Math.max(1, value);
     }
 
     @Override
-    public String readData() {
-        return decompress(super.readData());
+    public OutputStream openOutputStream() throws IOException {
+        if (executor != null) {
+            OutputStream out = super.openOutputStream();
+            out.write(BLOCK_FORMAT);
+            return new BlockDeflaterOutputStream(out, executor, compLevel, blockSize, maxInFlight);
+        }
+        OutputStream out = FORMAT.mark(super.openOutputStream());
+        int level = compLevel;
+        Deflater deflater = CompressorPool.borrowDeflater(level);
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            private boolean released;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!released) {
+                        released = true;
+                        CompressorPool.release(deflater, level);
+                    }
+                }
+            }
+        };
     }
 
-    private String compress(String stringData) {
-        byte[] data = stringData.getBytes();
-        try {
-            ByteArrayOutputStream bout = new ByteArrayOutputStream(512);
-            DeflaterOutputStream dos = new DeflaterOutputStream(bout, new Deflater(compLevel));
-            dos.write(data);
-            dos.close();
-            bout.close();
-            return Base64.getEncoder().encodeToString(bout.toByteArray());
-        } catch (IOException ex) {
-            return null;
+    @Override
+    public InputStream openInputStream() throws IOException {
+        PushbackInputStream in = new PushbackInputStream(super.openInputStream(), 1);
+        int first = in.read();
+        if (first == BLOCK_FORMAT) {
+            return new BlockInflaterInputStream(in, blockExecutor(), Math.max(1, maxInFlight));
+        }
+        if (first != -1) {
+            in.unread(first);
         }
+        return new InflaterInputStream(FORMAT.unmark(in), CompressorPool.borrowInflater(), BUFFER_SIZE) {
+            private boolean released;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!released) {
+                        released = true;
+                        CompressorPool.release(inf);
+                    }
+                }
+            }
+        };
     }
 
-    private String decompress(String stringData) {
-        byte[] data = Base64.getDecoder().decode(stringData);
+    /**
+     * Returns up to {@code length} decompressed bytes starting at {@code offset}. For block
+     * compressed data only the blocks covering the range are inflated, the rest are skipped.
+     */
+    public byte[] readRange(long offset, int length) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(super.openInputStream(), 1);
         try {
-            InputStream in = new ByteArrayInputStream(data);
-            InflaterInputStream iin = new InflaterInputStream(in);
-            ByteArrayOutputStream bout = new ByteArrayOutputStream(512);
-            int b;
-            while ((b = iin.read()) != -1) {
-                bout.write(b);
+            int first = in.read();
+            if (first != BLOCK_FORMAT) {
+                if (first != -1) {
+                    in.unread(first);
+                }
+                return skipAndRead(this, offset, length);
+            }
+            DataInputStream din = new DataInputStream(in);
+            int blockSize = BlockInflaterInputStream.readBlockSize(din);
+            long end = offset + length;
+            long blockStart = 0;
+            List<CompletableFuture<byte[]>> blocks = new ArrayList<>();
+            long firstBlockStart = -1;
+            BlockInflaterInputStream.Header header;
+            while (blockStart < end && (header = BlockInflaterInputStream.Header.read(din, blockSize)) != null) {
+                long blockEnd = blockStart + header.rawLength;
+                if (blockEnd <= offset) {
+                    header.skipData(din);
+                } else {
+                    if (firstBlockStart < 0) {
+                        firstBlockStart = blockStart;
+                    }
+                    byte[] data = header.readData(din);
+                    int rawLength = header.rawLength;
+                    blocks.add(CompletableFuture.supplyAsync(
+                            () -> BlockInflaterInputStream.inflate(data, rawLength), blockExecutor()));
+                }
+                blockStart = blockEnd;
+            }
+            ByteArrayOutputStream result = new ByteArrayOutputStream(length);
+            long position = firstBlockStart;
+            for (CompletableFuture<byte[]> future : blocks) {
+                byte[] block = BlockInflaterInputStream.join(future);
+                int from = (int) Math.max(0, offset - position);
+                int to = (int) Math.min(block.length, end - position);
+                result.write(block, from, to - from);
+                position += block.length;
             }
+            return result.toByteArray();
+        } finally {
             in.close();
-            iin.close();
-            bout.close();
-            return new String(bout.toByteArray());
-        } catch (IOException ex) {
-            return null;
         }
     }
+
+    private static byte[] skipAndRead(DataSource source, long offset, int length) throws IOException {
+        try (InputStream in = source.openInputStream()) {
+            long skipped = 0;
+            while (skipped < offset) {
+                long n = in.skip(offset - skipped);
+                if (n <= 0) {
+                    if (in.read() == -1) {
+                        return new byte[0];
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+            return in.readNBytes(length);
+        }
+    }
+
+    private Executor blockExecutor() {
+        return executor != null ? executor : Runnable::run;
+    }
 }
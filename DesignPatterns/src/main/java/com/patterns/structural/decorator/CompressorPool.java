@@ -0,0 +1,80 @@
+package com.patterns.structural.decorator;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps idle {@link Deflater}s (one queue per compression level) and {@link Inflater}s for reuse,
+ * so their native memory is allocated once instead of per call and released with {@code end()}
+ * as soon as the pool is full.
+ */
+public class CompressorPool {
+
+    private static final int MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+    // Levels go from Deflater.DEFAULT_COMPRESSION (-1) to Deflater.BEST_COMPRESSION (9).
+    private static final ArrayBlockingQueue<Deflater>[] deflaters = newQueues(Deflater.BEST_COMPRESSION + 2);
+    private static final ArrayBlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(MAX_IDLE);
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private CompressorPool() {
+    }
+
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    static Deflater borrowDeflater(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("invalid compression level: " + level);
+        }
+        Deflater deflater = deflaters[level + 1].poll();
+        if (deflater == null) {
+            misses.increment();
+            return new Deflater(level);
+        }
+        hits.increment();
+        return deflater;
+    }
+
+    static void release(Deflater deflater, int level) {
+        deflater.reset();
+        if (!deflaters[level + 1].offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    static Inflater borrowInflater() {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            misses.increment();
+            return new Inflater();
+        }
+        hits.increment();
+        return inflater;
+    }
+
+    static void release(Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayBlockingQueue<Deflater>[] newQueues(int count) {
+        ArrayBlockingQueue<Deflater>[] queues = new ArrayBlockingQueue[count];
+        for (int i = 0; i < count; i++) {
+            queues[i] = new ArrayBlockingQueue<>(MAX_IDLE);
+        }
+        return queues;
+    }
+}
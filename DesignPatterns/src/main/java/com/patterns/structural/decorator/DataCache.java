@@ -0,0 +1,96 @@
+package com.patterns.structural.decorator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size bounded LRU cache of decoded content shared by {@link CachingDecorator}s. Entries are tagged
+ * with the version of the source they were read from and ignored once the version changes.
+ */
+public class DataCache {
+
+    private static final DataCache SHARED = new DataCache(64L * 1024 * 1024);
+
+    private final long maxBytes;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public DataCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static DataCache shared() {
+        return SHARED;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    synchronized byte[] get(Object key, String version) {
+        Entry entry = entries.get(key);
+        if (entry == null || !Objects.equals(entry.version, version)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.data;
+    }
+
+    synchronized void put(Object key, String version, byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(version, data));
+        if (previous != null) {
+            size -= previous.data.length;
+        }
+        size += data.length;
+        Iterator<Map.Entry<Object, Entry>> eldest = entries.entrySet().iterator();
+        while (size > maxBytes && eldest.hasNext()) {
+            size -= eldest.next().getValue().data.length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    synchronized void invalidate(Object key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            size -= previous.data.length;
+        }
+    }
+
+    private static class Entry {
+        final String version;
+        final byte[] data;
+
+        Entry(String version, byte[] data) {
+            this.version = version;
+            this.data = data;
+        }
+    }
+}
@@ -1,8 +1,63 @@
 package com.patterns.structural.decorator;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public interface DataSource {
 
-    void writeData(String data);
+    int BUFFER_SIZE = 8192;
+
+    OutputStream openOutputStream() throws IOException;
+
+    InputStream openInputStream() throws IOException;
+
+    /**
+     * Changes whenever the stored content changes, or null when the source cannot tell.
+     */
+    default String getVersion() {
+        return null;
+    }
+
+    default void writeData(String data) {
+        try (OutputStream out = openOutputStream()) {
+            out.write(data.getBytes());
+        } catch (IOException ex) {
+            System.out.println(ex.getMessage());
+        }
+    }
+
+    default String readData() {
+        try (InputStream in = openInputStream()) {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream(BUFFER_SIZE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                bout.write(buffer, 0, n);
+            }
+            return new String(bout.toByteArray());
+        } catch (IOException ex) {
+            System.out.println(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Streams the whole content of {@code in} into this source through a fixed size buffer.
+     */
+    default long writeFrom(InputStream in) throws IOException {
+        try (OutputStream out = openOutputStream()) {
+            return in.transferTo(out);
+        }
+    }
 
-    String readData();
+    /**
+     * Streams the whole content of this source into {@code out} through a fixed size buffer.
+     */
+    default long readTo(OutputStream out) throws IOException {
+        try (InputStream in = openInputStream()) {
+            return in.transferTo(out);
+        }
+    }
 }
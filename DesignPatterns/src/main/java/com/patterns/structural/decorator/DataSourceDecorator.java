@@ -1,5 +1,9 @@
 package com.patterns.structural.decorator;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public class DataSourceDecorator implements DataSource {
 
     private DataSource wrappee;
@@ -8,13 +12,26 @@ public class DataSourceDecorator implements DataSource {
         this.wrappee = dataSource;
     }
 
+    protected DataSource getWrappee() {
+        return wrappee;
+    }
+
+    void setWrappee(DataSource dataSource) {
+        this.wrappee = dataSource;
+    }
+
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+        return wrappee.openOutputStream();
+    }
+
     @Override
-    public void writeData(String data) {
-        wrappee.writeData(data);
+    public InputStream openInputStream() throws IOException {
+        return wrappee.openInputStream();
     }
 
     @Override
-    public String readData() {
-        return wrappee.readData();
+    public String getVersion() {
+        return wrappee.getVersion();
     }
 }
@@ -0,0 +1,75 @@
+package com.patterns.structural.decorator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process registry of per layer metrics. {@link #instrument(String, DataSource)} puts a
+ * {@link MetricsDecorator} on top of every layer of a chain, so
+ * {@code Compression(Encryption(File))} is reported as three layers named
+ * {@code chain/0:CompressionDecorator}, {@code chain/1:EncryptionDecorator} and {@code chain/2:FileDataSource}.
+ */
+public class DataSourceMetrics {
+
+    private static final DataSourceMetrics GLOBAL = new DataSourceMetrics();
+
+    private final Map<String, LayerMetrics> layers = new ConcurrentHashMap<>();
+
+    public static DataSourceMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Instruments every layer of {@code chain} in place and returns the new top of the chain. Chains
+     * instrumented under the same name share their metrics.
+     */
+    public DataSource instrument(String name, DataSource chain) {
+        return instrument(name, chain, 0);
+    }
+
+    private MetricsDecorator instrument(String name, DataSource layer, int depth) {
+        if (layer instanceof MetricsDecorator) {
+            throw new IllegalArgumentException("Chain " + name + " is already instrumented");
+        }
+        LayerMetrics metrics = layers.computeIfAbsent(name + "/" + depth + ":" + layer.getClass().getSimpleName(),
+                LayerMetrics::new);
+        if (layer instanceof DataSourceDecorator) {
+            DataSourceDecorator decorator = (DataSourceDecorator) layer;
+            MetricsDecorator below = instrument(name, decorator.getWrappee(), depth + 1);
+            decorator.setWrappee(below);
+            metrics.setDownstream(below.getMetrics());
+        }
+        return new MetricsDecorator(layer, metrics);
+    }
+
+    public LayerMetrics getLayer(String name) {
+        return layers.get(name);
+    }
+
+    public Collection<LayerMetrics> getLayers() {
+        return Collections.unmodifiableCollection(layers.values());
+    }
+
+    /**
+     * Layers of one chain, from the top of the chain down.
+     */
+    public List<LayerMetrics> getChain(String name) {
+        List<LayerMetrics> chain = new ArrayList<>();
+        for (LayerMetrics layer : layers.values()) {
+            if (layer.getName().startsWith(name + "/")) {
+                chain.add(layer);
+            }
+        }
+        chain.sort((a, b) -> Integer.compare(depth(a), depth(b)));
+        return chain;
+    }
+
+    private static int depth(LayerMetrics layer) {
+        String name = layer.getName();
+        return Integer.parseInt(name.substring(name.lastIndexOf('/') + 1, name.indexOf(':', name.lastIndexOf('/'))));
+    }
+}
@@ -1,36 +1,75 @@
 package com.patterns.structural.decorator;
 
-import java.util.Base64;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public class EncryptionDecorator extends DataSourceDecorator {
 
+    private static final FormatMarker FORMAT = new FormatMarker(0xE1);
+
     public EncryptionDecorator(DataSource dataSource) {
         super(dataSource);
     }
 
     @Override
-    public void writeData(String data) {
-        super.writeData(encode(data));
+    public OutputStream openOutputStream() throws IOException {
+        return new EncodingOutputStream(FORMAT.mark(super.openOutputStream()));
     }
 
     @Override
-    public String readData() {
-        return decode(super.readData());
+    public InputStream openInputStream() throws IOException {
+        return new DecodingInputStream(FORMAT.unmark(super.openInputStream()));
     }
 
-    private String encode(String data) {
-        byte[] result = data.getBytes();
-        for (int i = 0; i < result.length; i++) {
-            result[i] += (byte) 1;
+    private static class EncodingOutputStream extends FilterOutputStream {
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        EncodingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b + 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, buffer.length);
+                for (int i = 0; i < chunk; i++) {
+                    buffer[i] = (byte) (b[off + i] + 1);
+                }
+                out.write(buffer, 0, chunk);
+                off += chunk;
+                len -= chunk;
+            }
         }
-        return Base64.getEncoder().encodeToString(result);
     }
 
-    private String decode(String data) {
-        byte[] result = Base64.getDecoder().decode(data);
-        for (int i = 0; i < result.length; i++) {
-            result[i] -= (byte) 1;
+    private static class DecodingInputStream extends FilterInputStream {
+
+        DecodingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            return b == -1 ? -1 : (b - 1) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            for (int i = 0; i < n; i++) {
+                b[off + i] -= (byte) 1;
+            }
+            return n;
         }
-        return new String(result);
     }
 }
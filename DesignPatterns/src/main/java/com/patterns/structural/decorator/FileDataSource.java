@@ -1,35 +1,128 @@
 package com.patterns.structural.decorator;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class FileDataSource implements DataSource {
 
+    // Ranges at least this large are mapped instead of copied into a heap buffer.
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
     private String name;
+    private boolean append;
 
     public FileDataSource(String name) {
+        this(name, false);
+    }
+
+    /**
+     * @param append when true every write is appended to the end of the file instead of replacing it
+     */
+    public FileDataSource(String name, boolean append) {
         this.name = name;
+        this.append = append;
+    }
+
+    public boolean isAppend() {
+        return append;
     }
 
     @Override
-    public void writeData(String data) {
-        File file = new File(name);
-        try (OutputStream fos = new FileOutputStream(file)) {
-            fos.write(data.getBytes(), 0, data.length());
-        } catch (IOException ex) {
-            System.out.println(ex.getMessage());
-        }
+    public OutputStream openOutputStream() throws IOException {
+        FileChannel channel = FileChannel.open(path(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        return new BufferedInputStream(Channels.newInputStream(FileChannel.open(path())), BUFFER_SIZE);
     }
 
+    /**
+     * Modification time and size of the file, enough to notice writes made outside of this source.
+     */
     @Override
-    public String readData() {
-        char[] buffer = null;
-        File file = new File(name);
-        try (FileReader reader = new FileReader(file)) {
-            buffer = new char[(int) file.length()];
-            reader.read(buffer);
+    public String getVersion() {
+        try {
+            return Files.getLastModifiedTime(path()).toMillis() + ":" + Files.size(path());
         } catch (IOException ex) {
-            System.out.println(ex.getMessage());
+            return null;
+        }
+    }
+
+    public long size() throws IOException {
+        try (FileChannel channel = FileChannel.open(path())) {
+            return channel.size();
+        }
+    }
+
+    /**
+     * Appends {@code data} to the end of the file, whatever the write mode.
+     *
+     * @return the position the data was written at
+     */
+    public long append(ByteBuffer data) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = channel.size();
+            long offset = position;
+            while (data.hasRemaining()) {
+                offset += channel.write(data, offset);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Reads up to {@code length} bytes starting at {@code position} without loading the rest of the file.
+     * Large ranges are returned as a read-only memory mapped buffer.
+     */
+    public ByteBuffer read(long position, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path())) {
+            int count = (int) Math.max(0, Math.min(length, channel.size() - position));
+            if (count >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, count);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(count);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) == -1) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Copies {@code count} bytes starting at {@code position} straight into {@code target},
+     * letting the OS skip the user space copy where it can.
+     *
+     * @return the number of bytes transferred
+     */
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path())) {
+            long end = Math.min(channel.size(), position + count);
+            long transferred = 0;
+            while (position + transferred < end) {
+                long n = channel.transferTo(position + transferred, end - position - transferred, target);
+                if (n <= 0) {
+                    break;
+                }
+                transferred += n;
+            }
+            return transferred;
         }
-        return new String(buffer);
+    }
+
+    private Path path() {
+        return Paths.get(name);
     }
 }
@@ -0,0 +1,40 @@
+package com.patterns.structural.decorator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Base64;
+
+/**
+ * Marks the raw binary format written by a decorator layer.
+ *
+ * Older layers stored their output as Base64 text, which only ever contains ASCII bytes,
+ * so a leading byte with the high bit set is enough to tell both formats apart on read.
+ */
+class FormatMarker {
+
+    private final byte marker;
+
+    FormatMarker(int marker) {
+        this.marker = (byte) marker;
+    }
+
+    OutputStream mark(OutputStream out) throws IOException {
+        out.write(marker);
+        return out;
+    }
+
+    /**
+     * Returns a stream positioned after the marker, or a Base64 decoding stream for legacy content.
+     */
+    InputStream unmark(InputStream in) throws IOException {
+        PushbackInputStream pin = new PushbackInputStream(in, 1);
+        int first = pin.read();
+        if (first == -1 || (byte) first == marker) {
+            return pin;
+        }
+        pin.unread(first);
+        return Base64.getDecoder().wrap(pin);
+    }
+}
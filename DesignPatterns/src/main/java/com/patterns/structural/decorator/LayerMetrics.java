@@ -0,0 +1,121 @@
+package com.patterns.structural.decorator;
+
+import com.patterns.structural.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What crossed the top of one layer of a chain. Latencies are the time spent in the stream calls of
+ * the layer, so they include the layers below; the {@code self} values subtract the layer right below.
+ */
+public class LayerMetrics {
+
+    private final String name;
+    private volatile LayerMetrics downstream;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+    private final LatencyHistogram readLatency = new LatencyHistogram();
+
+    LayerMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LayerMetrics getDownstream() {
+        return downstream;
+    }
+
+    void setDownstream(LayerMetrics downstream) {
+        this.downstream = downstream;
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    public long getReads() {
+        return reads.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public LatencyHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    public LatencyHistogram getReadLatency() {
+        return readLatency;
+    }
+
+    /**
+     * Bytes written into this layer per byte it passed down, e.g. the compression ratio of a
+     * compression layer; 0 when unknown.
+     */
+    public double getWriteRatio() {
+        LayerMetrics below = downstream;
+        long out = below == null ? 0 : below.getBytesWritten();
+        return out == 0 ? 0 : (double) getBytesWritten() / out;
+    }
+
+    public double getReadRatio() {
+        LayerMetrics below = downstream;
+        long in = below == null ? 0 : below.getBytesRead();
+        return in == 0 ? 0 : (double) getBytesRead() / in;
+    }
+
+    public long getSelfWriteNanos() {
+        LayerMetrics below = downstream;
+        return writeLatency.getTotalNanos() - (below == null ? 0 : below.writeLatency.getTotalNanos());
+    }
+
+    public long getSelfReadNanos() {
+        LayerMetrics below = downstream;
+        return readLatency.getTotalNanos() - (below == null ? 0 : below.readLatency.getTotalNanos());
+    }
+
+    void recordWrite(long bytes, long nanos) {
+        writes.increment();
+        bytesWritten.add(bytes);
+        writeLatency.record(nanos);
+    }
+
+    void recordRead(long bytes, long nanos) {
+        reads.increment();
+        bytesRead.add(bytes);
+        readLatency.record(nanos);
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: writes=%d bytesWritten=%d writeRatio=%.2f writeP50=%dus writeP99=%dus selfWrite=%dus"
+                        + " | reads=%d bytesRead=%d readRatio=%.2f readP50=%dus readP99=%dus selfRead=%dus | errors=%d",
+                name, getWrites(), getBytesWritten(), getWriteRatio(),
+                writeLatency.getPercentileNanos(50) / 1000, writeLatency.getPercentileNanos(99) / 1000,
+                getSelfWriteNanos() / 1000,
+                getReads(), getBytesRead(), getReadRatio(),
+                readLatency.getPercentileNanos(50) / 1000, readLatency.getPercentileNanos(99) / 1000,
+                getSelfReadNanos() / 1000, getErrors());
+    }
+}
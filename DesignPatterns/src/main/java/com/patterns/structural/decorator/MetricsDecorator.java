@@ -0,0 +1,155 @@
+package com.patterns.structural.decorator;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Records calls, bytes and latency of the layer it wraps into a {@link LayerMetrics}.
+ * Usually inserted by {@link DataSourceMetrics#instrument(String, DataSource)} rather than by hand.
+ *
+ * Latency is the time spent inside the stream calls of the layer (open, every read or write, close),
+ * not the time the stream stays open, so that layers streaming through each other can be compared.
+ */
+public class MetricsDecorator extends DataSourceDecorator {
+
+    private final LayerMetrics metrics;
+
+    public MetricsDecorator(DataSource dataSource, LayerMetrics metrics) {
+        super(dataSource);
+        this.metrics = metrics;
+    }
+
+    public LayerMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+        long start = System.nanoTime();
+        OutputStream out;
+        try {
+            out = super.openOutputStream();
+        } catch (IOException | RuntimeException ex) {
+            metrics.recordError();
+            throw ex;
+        }
+        long opened = System.nanoTime() - start;
+        return new FilterOutputStream(out) {
+            private long bytes;
+            private long active = opened;
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    out.write(b);
+                    bytes++;
+                } finally {
+                    active += System.nanoTime() - start;
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    out.write(b, off, len);
+                    bytes += len;
+                } finally {
+                    active += System.nanoTime() - start;
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                long start = System.nanoTime();
+                try {
+                    out.flush();
+                } finally {
+                    active += System.nanoTime() - start;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                long start = System.nanoTime();
+                try {
+                    out.close();
+                } catch (IOException | RuntimeException ex) {
+                    metrics.recordError();
+                    throw ex;
+                } finally {
+                    metrics.recordWrite(bytes, active + System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        long start = System.nanoTime();
+        InputStream in;
+        try {
+            in = super.openInputStream();
+        } catch (IOException | RuntimeException ex) {
+            metrics.recordError();
+            throw ex;
+        }
+        long opened = System.nanoTime() - start;
+        return new FilterInputStream(in) {
+            private long bytes;
+            private long active = opened;
+            private boolean closed;
+
+            @Override
+            public int read() throws IOException {
+                long start = System.nanoTime();
+                try {
+                    int b = in.read();
+                    if (b != -1) {
+                        bytes++;
+                    }
+                    return b;
+                } finally {
+                    active += System.nanoTime() - start;
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    int n = in.read(b, off, len);
+                    if (n > 0) {
+                        bytes += n;
+                    }
+                    return n;
+                } finally {
+                    active += System.nanoTime() - start;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                long start = System.nanoTime();
+                try {
+                    in.close();
+                } finally {
+                    metrics.recordRead(bytes, active + System.nanoTime() - start);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,216 @@
+package com.patterns.structural.decorator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers writes in a bounded queue and commits them in batches from a background thread: every
+ * record waits at most {@code maxLatency} and a batch holds at most {@code maxBatchSize} records,
+ * all written through a single stream of the wrapped source. Writers block when the queue is full.
+ *
+ * Records of a batch are concatenated, so the wrapped source is expected to append, like a
+ * {@link FileDataSource} opened in append mode.
+ */
+public class WriteBehindDecorator extends DataSourceDecorator implements Flushable, Closeable {
+
+    private final BlockingQueue<byte[]> queue;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final ReentrantLock putLock = new ReentrantLock();
+    private final Object commitLock = new Object();
+    private final Thread writer;
+
+    private long submitted;
+    private long committed;
+    private long batches;
+    private IOException failure;
+    private volatile boolean closed;
+
+    public WriteBehindDecorator(DataSource dataSource, int queueCapacity, int maxBatchSize, Duration maxLatency) {
+        super(dataSource);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = maxLatency.toNanos();
+        this.writer = new Thread(this::drain, "write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * The returned stream collects one record and queues it on close.
+     */
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+        if (closed) {
+            throw new IOException("Write-behind source is closed");
+        }
+        return new ByteArrayOutputStream(BUFFER_SIZE) {
+            private boolean queued;
+
+            @Override
+            public void close() throws IOException {
+                if (!queued) {
+                    queued = true;
+                    enqueue(toByteArray());
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads see every write queued before the call.
+     */
+    @Override
+    public InputStream openInputStream() throws IOException {
+        flush();
+        return super.openInputStream();
+    }
+
+    /**
+     * Blocks until every record queued before the call has been committed.
+     */
+    @Override
+    public void flush() throws IOException {
+        long target;
+        putLock.lock();
+        try {
+            target = submitted;
+        } finally {
+            putLock.unlock();
+        }
+        synchronized (commitLock) {
+            try {
+                while (committed < target && failure == null) {
+                    commitLock.wait();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while flushing");
+            }
+            if (failure != null) {
+                IOException ex = failure;
+                failure = null;
+                throw ex;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Under putLock so that no record can be queued after the writer has seen the flag.
+        putLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            putLock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing");
+        }
+        List<byte[]> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            commit(rest);
+        }
+        flush();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getCommittedRecords() {
+        synchronized (commitLock) {
+            return committed;
+        }
+    }
+
+    public long getCommittedBatches() {
+        synchronized (commitLock) {
+            return batches;
+        }
+    }
+
+    private void enqueue(byte[] record) throws IOException {
+        putLock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Write-behind source is closed");
+            }
+            queue.put(record);
+            submitted++;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing a write");
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    private void drain() {
+        List<byte[]> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                byte[] first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < maxBatchSize) {
+                    byte[] next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                // Keep draining: close() relies on the queue being emptied.
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<byte[]> batch) {
+        IOException error = null;
+        try (OutputStream out = super.openOutputStream()) {
+            for (byte[] record : batch) {
+                out.write(record);
+            }
+        } catch (IOException ex) {
+            error = ex;
+        } catch (Throwable ex) {
+            // Anything escaping here would kill the writer and leave flush() and close() waiting forever.
+            error = new IOException("Write-behind commit failed", ex);
+        }
+        synchronized (commitLock) {
+            committed += batch.size();
+            batches++;
+            if (error != null && failure == null) {
+                failure = error;
+            }
+            commitLock.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.patterns.structural.decorator.store;
+
+import com.patterns.structural.decorator.ByteArrayDataSource;
+import com.patterns.structural.decorator.DataSource;
+import com.patterns.structural.decorator.FileDataSource;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Key/value record store on top of a decorator chain.
+ *
+ * Records are grouped in blocks, every block is encoded on its own through the chain (for example
+ * compression and encryption) and appended to the current segment file. A persisted index maps every
+ * key to the block holding its latest value, so a lookup decodes a single block. Deletes are written
+ * as tombstones; {@link #compact()} rewrites the live records and drops the old segments.
+ */
+public class RecordStore implements Closeable {
+
+    private static final String INDEX_FILE = "index.dat";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final Path directory;
+    private final UnaryOperator<DataSource> chain;
+    private final int recordsPerBlock;
+    private final long maxSegmentBytes;
+
+    private final Map<String, Location> index = new HashMap<>();
+    // A null value is a pending delete.
+    private final Map<String, String> pending = new LinkedHashMap<>();
+    private int segment = 1;
+    private long obsoleteRecords;
+
+    /**
+     * @param chain wraps the sink a block is encoded into, e.g. {@code s -> new CompressionDecorator(new EncryptionDecorator(s))}
+     */
+    public RecordStore(Path directory, UnaryOperator<DataSource> chain, int recordsPerBlock, long maxSegmentBytes)
+            throws IOException {
+        this.directory = directory;
+        this.chain = chain;
+        this.recordsPerBlock = recordsPerBlock;
+        this.maxSegmentBytes = maxSegmentBytes;
+        Files.createDirectories(directory);
+        if (!loadIndex()) {
+            rebuildIndex();
+        }
+    }
+
+    public synchronized void put(String key, String value) throws IOException {
+        pending.put(key, Objects.requireNonNull(value));
+        if (pending.size() >= recordsPerBlock) {
+            writePending();
+        }
+    }
+
+    public synchronized void delete(String key) throws IOException {
+        pending.put(key, null);
+        if (pending.size() >= recordsPerBlock) {
+            writePending();
+        }
+    }
+
+    public synchronized String get(String key) throws IOException {
+        if (pending.containsKey(key)) {
+            return pending.get(key);
+        }
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        for (Record record : readBlock(location)) {
+            if (record.key.equals(key)) {
+                return record.value;
+            }
+        }
+        throw new IOException("Index points to a block without key " + key + ", rebuild the index");
+    }
+
+    public synchronized Set<String> keys() {
+        Set<String> keys = new HashSet<>(index.keySet());
+        pending.forEach((key, value) -> {
+            if (value == null) {
+                keys.remove(key);
+            } else {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * Number of superseded records and tombstones that {@link #compact()} would reclaim.
+     */
+    public synchronized long getObsoleteRecords() {
+        return obsoleteRecords;
+    }
+
+    /**
+     * Writes the pending block and persists the index.
+     */
+    public synchronized void flush() throws IOException {
+        writePending();
+        saveIndex();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Rewrites every live record into new segments and deletes the old ones.
+     */
+    public synchronized void compact() throws IOException {
+        writePending();
+        List<Path> oldSegments = segments();
+        Map<Location, List<String>> keysByBlock = index.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue, TreeMap::new,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        Map<String, Location> compacted = new HashMap<>();
+        segment++;
+        List<Record> block = new ArrayList<>(recordsPerBlock);
+        for (Map.Entry<Location, List<String>> entry : keysByBlock.entrySet()) {
+            Set<String> live = new HashSet<>(entry.getValue());
+            for (Record record : readBlock(entry.getKey())) {
+                if (live.contains(record.key)) {
+                    block.add(record);
+                    if (block.size() == recordsPerBlock) {
+                        appendTo(compacted, block);
+                    }
+                }
+            }
+        }
+        if (!block.isEmpty()) {
+            appendTo(compacted, block);
+        }
+        index.clear();
+        index.putAll(compacted);
+        obsoleteRecords = 0;
+        saveIndex();
+        for (Path path : oldSegments) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Rebuilds the index by replaying every block of every segment in order. A block cut short by a
+     * crash at the end of a segment is dropped from the file.
+     */
+    public synchronized void rebuildIndex() throws IOException {
+        index.clear();
+        obsoleteRecords = 0;
+        segment = 1;
+        for (Path path : segments()) {
+            int number = segmentNumber(path);
+            segment = Math.max(segment, number);
+            long offset = 0;
+            long size = Files.size(path);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (offset + Integer.BYTES <= size) {
+                    int length = in.readInt();
+                    if (length < 0 || offset + Integer.BYTES + length > size) {
+                        break;
+                    }
+                    byte[] encoded = new byte[length];
+                    in.readFully(encoded);
+                    Location location = new Location(number, offset, length);
+                    for (Record record : decode(encoded)) {
+                        index(record, location);
+                    }
+                    offset += Integer.BYTES + length;
+                }
+            }
+            if (offset < size) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(offset);
+                }
+            }
+        }
+        saveIndex();
+    }
+
+    private void writePending() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Record> block = new ArrayList<>(pending.size());
+        pending.forEach((key, value) -> block.add(new Record(key, value)));
+        pending.clear();
+        Location location = appendBlock(block);
+        for (Record record : block) {
+            index(record, location);
+        }
+    }
+
+    private Location appendBlock(List<Record> block) throws IOException {
+        FileDataSource file = new FileDataSource(segmentPath(segment).toString(), true);
+        if (Files.exists(segmentPath(segment)) && file.size() >= maxSegmentBytes) {
+            segment++;
+            file = new FileDataSource(segmentPath(segment).toString(), true);
+        }
+        byte[] encoded = encode(block);
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + encoded.length);
+        frame.putInt(encoded.length).put(encoded).flip();
+        return new Location(segment, file.append(frame), encoded.length);
+    }
+
+    private void appendTo(Map<String, Location> target, List<Record> block) throws IOException {
+        Location location = appendBlock(block);
+        for (Record record : block) {
+            target.put(record.key, location);
+        }
+        block.clear();
+    }
+
+    private void index(Record record, Location location) {
+        Location previous = record.value == null ? index.remove(record.key) : index.put(record.key, location);
+        if (previous != null) {
+            obsoleteRecords++;
+        }
+        if (record.value == null) {
+            obsoleteRecords++;
+        }
+    }
+
+    private List<Record> readBlock(Location location) throws IOException {
+        FileDataSource file = new FileDataSource(segmentPath(location.segment).toString());
+        ByteBuffer buffer = file.read(location.offset + Integer.BYTES, location.length);
+        byte[] encoded = new byte[buffer.remaining()];
+        buffer.get(encoded);
+        return decode(encoded);
+    }
+
+    private byte[] encode(List<Record> block) throws IOException {
+        ByteArrayDataSource sink = new ByteArrayDataSource();
+        try (DataOutputStream out = new DataOutputStream(chain.apply(sink).openOutputStream())) {
+            out.writeInt(block.size());
+            for (Record record : block) {
+                out.writeUTF(record.key);
+                out.writeBoolean(record.value != null);
+                if (record.value != null) {
+                    byte[] value = record.value.getBytes();
+                    out.writeInt(value.length);
+                    out.write(value);
+                }
+            }
+        }
+        return sink.toByteArray();
+    }
+
+    private List<Record> decode(byte[] encoded) throws IOException {
+        try (DataInputStream in = new DataInputStream(chain.apply(new ByteArrayDataSource(encoded)).openInputStream())) {
+            int count = in.readInt();
+            List<Record> block = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                String value = null;
+                if (in.readBoolean()) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    value = new String(bytes);
+                }
+                block.add(new Record(key, value));
+            }
+            return block;
+        }
+    }
+
+    /**
+     * Loads the persisted index, unless it is missing or segments were written after it was saved.
+     */
+    private boolean loadIndex() throws IOException {
+        Path path = directory.resolve(INDEX_FILE);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int savedSegment = in.readInt();
+            long savedSize = in.readLong();
+            List<Path> segments = segments();
+            Path last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            long actualSize = last == null ? 0 : Files.size(last);
+            if (last != null && (segmentNumber(last) != savedSegment || actualSize != savedSize)) {
+                return false;
+            }
+            segment = savedSegment;
+            obsoleteRecords = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                index.put(in.readUTF(), new Location(in.readInt(), in.readLong(), in.readInt()));
+            }
+            return true;
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        Path path = directory.resolve(INDEX_FILE);
+        Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+        Path current = segmentPath(segment);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(segment);
+            out.writeLong(Files.exists(current) ? Files.size(current) : 0);
+            out.writeLong(obsoleteRecords);
+            out.writeInt(index.size());
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().segment);
+                out.writeLong(entry.getValue().offset);
+                out.writeInt(entry.getValue().length);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted(Comparator.comparingInt(RecordStore::segmentNumber))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static class Record {
+        final String key;
+        final String value;
+
+        Record(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static class Location implements Comparable<Location> {
+        final int segment;
+        final long offset;
+        final int length;
+
+        Location(int segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int compareTo(Location other) {
+            int bySegment = Integer.compare(segment, other.segment);
+            return bySegment != 0 ? bySegment : Long.compare(offset, other.offset);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Location)) {
+                return false;
+            }
+            Location other = (Location) o;
+            return segment == other.segment && offset == other.offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(segment, offset);
+        }
+    }
+}
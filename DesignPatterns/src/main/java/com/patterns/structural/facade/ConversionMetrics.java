@@ -0,0 +1,176 @@
+package com.patterns.structural.facade;
+
+import com.patterns.structural.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and per stage latency histograms of the conversions run by {@link VideoConversionFacade}.
+ * Recording only takes a few atomic adds, so it is always on.
+ */
+public class ConversionMetrics {
+
+    public static final String EXTRACT = "extract";
+    public static final String READ = "read";
+    public static final String CONVERT = "convert";
+    public static final String MIX = "mix";
+    public static final String PASSTHROUGH = "passthrough";
+    public static final String CACHE = "cache";
+    public static final String TOTAL = "total";
+
+    private static final ConversionMetrics GLOBAL = new ConversionMetrics();
+
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public static ConversionMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Marks a conversion as started and returns its start time for {@link #finish(long, long, boolean)}.
+     */
+    public long start() {
+        started.increment();
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void finish(long startNanos, long bytes, boolean success) {
+        inFlight.decrementAndGet();
+        if (success) {
+            record(TOTAL, startNanos, bytes);
+        } else {
+            failed.increment();
+        }
+    }
+
+    /**
+     * Records a stage that started at {@code startNanos} and ends now, and returns now, so that
+     * consecutive stages can be chained.
+     */
+    public long record(String stage, long startNanos, long bytes) {
+        long now = System.nanoTime();
+        stages.computeIfAbsent(stage, Stage::new).record(now - startNanos, bytes);
+        return now;
+    }
+
+    public Stage getStage(String stage) {
+        return stages.get(stage);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getStartedCount() {
+        return started.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * The metrics as a JSON object.
+     */
+    public String snapshot() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\n  \"timestamp\": \"").append(Instant.now()).append("\",\n")
+                .append("  \"inFlight\": ").append(getInFlight()).append(",\n")
+                .append("  \"started\": ").append(getStartedCount()).append(",\n")
+                .append("  \"failed\": ").append(getFailedCount()).append(",\n")
+                .append("  \"stages\": {");
+        String separator = "\n";
+        for (Stage stage : new TreeMap<>(stages).values()) {
+            LatencyHistogram latency = stage.getLatency();
+            json.append(separator).append(String.format("    \"%s\": {\"count\": %d, \"bytes\": %d, "
+                            + "\"bytesPerSecond\": %.0f, \"meanNanos\": %d, \"p50Nanos\": %d, \"p99Nanos\": %d}",
+                    stage.getName(), latency.getCount(), stage.getBytes(), stage.getBytesPerSecond(),
+                    latency.getMeanNanos(), latency.getPercentileNanos(50), latency.getPercentileNanos(99)));
+            separator = ",\n";
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    /**
+     * Rewrites {@code file} with a {@link #snapshot()} every {@code period} until the returned future is
+     * cancelled. Readers never see a partial file.
+     */
+    public ScheduledFuture<?> exportPeriodically(Path file, Duration period) {
+        return Exporter.SCHEDULER.scheduleAtFixedRate(() -> {
+            try {
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.write(tmp, snapshot().getBytes(StandardCharsets.UTF_8));
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                System.err.println("ConversionMetrics: writing " + file + " failed: " + ex);
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return snapshot();
+    }
+
+    private static class Exporter {
+        static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversion-metrics-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static class Stage {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder bytes = new LongAdder();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long bytes) {
+            latency.record(nanos);
+            this.bytes.add(bytes);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        /**
+         * Bytes processed per second spent in this stage.
+         */
+        public double getBytesPerSecond() {
+            long nanos = latency.getTotalNanos();
+            return nanos == 0 ? 0 : getBytes() * 1e9 / nanos;
+        }
+    }
+}
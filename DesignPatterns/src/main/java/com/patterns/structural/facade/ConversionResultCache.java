@@ -0,0 +1,199 @@
+package com.patterns.structural.facade;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converted videos kept on disk under the SHA-256 digest of their source content and the target codec,
+ * so re-uploads of a file already converted skip the conversion whatever their name. Each entry is a
+ * {@code <digest>.<codec>} file in {@code directory}; once the entries outgrow {@code maxBytes} the least
+ * recently used ones are deleted. Entry files never leave the cache: callers get and hand over copies, so
+ * a caller writing to or deleting its result cannot corrupt the entry served to the next one.
+ */
+public class ConversionResultCache {
+
+    private static final int DIGEST_BUFFER = 64 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+    // Least recently used first.
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean loaded;
+    private long size;
+    private long hits;
+    private long misses;
+
+    public ConversionResultCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Hex encoded SHA-256 of the file content.
+     */
+    public static String digest(Path file) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        byte[] buffer = new byte[DIGEST_BUFFER];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                sha256.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : sha256.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Copy of the cached result in a new temp file owned by the caller, or {@code null} on a miss.
+     */
+    public synchronized File get(String digest, String codec) throws IOException {
+        load();
+        String name = name(digest, codec);
+        if (entries.get(name) == null) {
+            misses++;
+            return null;
+        }
+        Path entry = directory.resolve(name);
+        if (!Files.exists(entry)) {
+            size -= entries.remove(name);
+            misses++;
+            return null;
+        }
+        hits++;
+        // Keeps the recency across restarts.
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        Path copy = Files.createTempFile("conversion-", "." + codec);
+        copy(entry, copy);
+        return copy.toFile();
+    }
+
+    /**
+     * Stores a copy of {@code result}; results that do not exist on disk are ignored.
+     */
+    public synchronized void put(String digest, String codec, File result) throws IOException {
+        if (!result.isFile()) {
+            return;
+        }
+        load();
+        String name = name(digest, codec);
+        Path entry = directory.resolve(name);
+        Path tmp = directory.resolve(name + ".tmp");
+        copy(result.toPath(), tmp);
+        Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Long previous = entries.put(name, Files.size(entry));
+        size += entries.get(name) - (previous == null ? 0 : previous);
+        evict(name);
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getSize() {
+        try {
+            load();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return size;
+    }
+
+    /**
+     * Copies the whole file with {@link FileChannel#transferTo}, which lets the kernel move the bytes
+     * without passing them through the heap.
+     */
+    static void copy(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long length = in.size();
+            long copied = 0;
+            while (copied < length) {
+                long n = in.transferTo(copied, length - copied, out);
+                if (n <= 0) {
+                    break;
+                }
+                copied += n;
+            }
+        }
+    }
+
+    private void evict(String keep) throws IOException {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (size > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            Files.deleteIfExists(directory.resolve(entry.getKey()));
+            size -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(ConversionResultCache::lastModified));
+        for (Path file : files) {
+            long length = Files.size(file);
+            entries.put(file.getFileName().toString(), length);
+            size += length;
+        }
+        evict(null);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String name(String digest, String codec) {
+        return digest + "." + codec;
+    }
+}
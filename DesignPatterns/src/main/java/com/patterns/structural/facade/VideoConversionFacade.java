@@ -3,25 +3,257 @@ package com.patterns.structural.facade;
 import com.patterns.structural.facade.complexlib.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
 
 public class VideoConversionFacade {
+    private static final Object END = new Object();
+
+    private ConversionResultCache resultCache;
+    private ConversionMetrics metrics = ConversionMetrics.global();
+
+    /**
+     * Serves conversions of content converted before from {@code resultCache}, and stores new results in it.
+     */
+    public void setResultCache(ConversionResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public ConversionMetrics getMetrics() {
+        return metrics;
+    }
+
     public File convertVideo(String filename, String format) {
+        Objects.requireNonNull(filename, "filename");
+        Objects.requireNonNull(format, "format");
         System.out.println("VideoConversionFacade: conversion started.");
-        VideoFile file = new VideoFile(filename);
-        Codec sourceCodec = CodecFactory.extract(file);
+        boolean success = false;
+        long bytes = 0;
+        Codec sourceCodec = null;
+        Codec destinationCodec = null;
+        long started = metrics.start();
+        try {
+            VideoFile file = new VideoFile(filename);
+            sourceCodec = CodecFactory.extract(file);
+            destinationCodec = CodecFactory.create(format);
+            long mark = metrics.record(ConversionMetrics.EXTRACT, started, 0);
+
+            Path source = Paths.get(filename);
+            bytes = Files.isRegularFile(source) ? Files.size(source) : 0;
+            String digest = resultCache != null && Files.isRegularFile(source) ? ConversionResultCache.digest(source) : null;
+            if (digest != null) {
+                File cached = resultCache.get(digest, destinationCodec.getType());
+                mark = metrics.record(ConversionMetrics.CACHE, mark, bytes);
+                if (cached != null) {
+                    System.out.println("VideoConversionFacade: conversion served from cache.");
+                    success = true;
+                    return cached;
+                }
+            }
+
+            File result;
+            boolean passthrough = isSameCodec(file.getCodecType(), format) && Files.isRegularFile(source);
+            if (passthrough) {
+                System.out.println("VideoConversionFacade: source already encoded as " + format + ", copying.");
+                Path copy = Files.createTempFile("conversion-", "." + destinationCodec.getType());
+                ConversionResultCache.copy(source, copy);
+                result = copy.toFile();
+                if (digest != null) {
+                    resultCache.put(digest, destinationCodec.getType(), result);
+                }
+                metrics.record(ConversionMetrics.PASSTHROUGH, mark, bytes);
+            } else {
+                VideoFile buffer = BitrateReader.read(file, sourceCodec);
+                mark = metrics.record(ConversionMetrics.READ, mark, bytes);
+                VideoFile intermediateResult = BitrateReader.convert(buffer, destinationCodec);
+                mark = metrics.record(ConversionMetrics.CONVERT, mark, bytes);
+                // Each conversion mixes into its own file, so concurrent conversions never share an output.
+                File output = Files.createTempFile("conversion-", "." + destinationCodec.getType()).toFile();
+                result = (new AudioMixer()).fix(intermediateResult, output);
+                mark = metrics.record(ConversionMetrics.MIX, mark, bytes);
+                if (digest != null) {
+                    resultCache.put(digest, destinationCodec.getType(), result);
+                }
+            }
+            System.out.println("VideoConversionFacade: conversion completed.");
+            success = true;
+            return result;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Conversion of " + filename + " failed", ex);
+        } finally {
+            CodecFactory.release(sourceCodec);
+            CodecFactory.release(destinationCodec);
+            metrics.finish(started, bytes, success);
+        }
+    }
+
+    public File convertVideoStreaming(String filename, String format, int segmentCount) {
+        return convertVideoStreaming(filename, format, segmentCount, 4, segment -> { });
+    }
+
+    /**
+     * Converts the file in {@code segmentCount} segments, reading, transcoding and mixing them on
+     * separate threads so that segment N+1 is read while segment N is transcoded. Stages hand segments
+     * over through queues of {@code queueCapacity} entries: a slow stage blocks the one before it, so
+     * at most about {@code 2 * queueCapacity + 3} segments are held at any time.
+     *
+     * @param onSegment notified on the calling thread as soon as each segment is fully converted
+     */
+    public File convertVideoStreaming(String filename, String format, int segmentCount, int queueCapacity,
+                                      Consumer<VideoSegment> onSegment) {
+        Objects.requireNonNull(filename, "filename");
+        Objects.requireNonNull(format, "format");
+        Objects.requireNonNull(onSegment, "onSegment");
+        if (segmentCount <= 0) {
+            throw new IllegalArgumentException("segmentCount must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        System.out.println("VideoConversionFacade: streaming conversion started.");
+        boolean success = false;
+        Codec sourceCodec = null;
+        Codec destinationCodec = null;
+        Thread reader = null;
+        Thread transcoder = null;
+        long started = metrics.start();
+        try {
+            VideoFile file = new VideoFile(filename);
+            Codec decoder = CodecFactory.extract(file);
+            sourceCodec = decoder;
+            Codec encoder = CodecFactory.create(format);
+            destinationCodec = encoder;
+            metrics.record(ConversionMetrics.EXTRACT, started, 0);
+
+            BlockingQueue<Object> read = new ArrayBlockingQueue<>(queueCapacity);
+            BlockingQueue<Object> converted = new ArrayBlockingQueue<>(queueCapacity);
+            reader = startStage("reader", read, () -> {
+                for (int i = 0; i < segmentCount; i++) {
+                    long mark = System.nanoTime();
+                    VideoSegment segment = BitrateReader.read(file, decoder, i, segmentCount);
+                    metrics.record(ConversionMetrics.READ, mark, 0);
+                    read.put(segment);
+                }
+            });
+            transcoder = startStage("transcoder", converted, () -> {
+                for (VideoSegment segment = take(read); segment != null; segment = take(read)) {
+                    long mark = System.nanoTime();
+                    VideoSegment result = BitrateReader.convert(segment, encoder);
+                    metrics.record(ConversionMetrics.CONVERT, mark, 0);
+                    converted.put(result);
+                }
+            });
+            AudioMixer mixer = new AudioMixer();
+            File result = null;
+            for (VideoSegment segment = take(converted); segment != null; segment = take(converted)) {
+                long mark = System.nanoTime();
+                result = mixer.fix(segment);
+                metrics.record(ConversionMetrics.MIX, mark, 0);
+                onSegment.accept(segment);
+            }
+            System.out.println("VideoConversionFacade: streaming conversion completed.");
+            success = true;
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Conversion of " + filename + " interrupted", ex);
+        } finally {
+            // The codecs go back to the pool only once no stage can use them anymore.
+            stopUninterruptibly(reader);
+            stopUninterruptibly(transcoder);
+            CodecFactory.release(sourceCodec);
+            CodecFactory.release(destinationCodec);
+            metrics.finish(started, 0, success);
+        }
+    }
+
+    /**
+     * Whether both types map to the same registered codec. Unknown types only fall back to the default
+     * codec, their content is not encoded with it.
+     */
+    private static boolean isSameCodec(String sourceType, String targetType) {
+        CodecRegistry registry = CodecRegistry.getDefault();
+        return registry.supports(sourceType) && registry.supports(targetType)
+                && registry.getType(sourceType).equals(registry.getType(targetType));
+    }
+
+    private static void stopUninterruptibly(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        Codec destinationCodec;
+    /**
+     * Runs a pipeline stage, always ending its output with an end of stream marker: the stage failure,
+     * or {@link #END} when it completed.
+     */
+    private static Thread startStage(String name, BlockingQueue<Object> output, Stage stage) {
+        Thread thread = new Thread(() -> {
+            Object end = END;
+            try {
+                stage.run();
+            } catch (InterruptedException ex) {
+                return;
+            } catch (Throwable ex) {
+                end = ex;
+            }
+            try {
+                output.put(end);
+            } catch (InterruptedException ignored) {
+                // The consumer is gone.
+            }
+        }, "video-conversion-" + name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
 
-        if(format.equals("mp4")) {
-            destinationCodec = new MPEG4CompressionCodec();
-        } else {
-            destinationCodec = new OggCompressionCodec();
+    /**
+     * Returns the next segment, {@code null} at the end of the stream, or rethrows the failure of the
+     * stage feeding the queue.
+     */
+    private static VideoSegment take(BlockingQueue<Object> queue) throws InterruptedException {
+        Object next = queue.take();
+        if (next == END) {
+            return null;
         }
+        if (next instanceof RuntimeException) {
+            throw (RuntimeException) next;
+        }
+        if (next instanceof Error) {
+            throw (Error) next;
+        }
+        if (next instanceof Throwable) {
+            throw new IllegalStateException("Conversion stage failed", (Throwable) next);
+        }
+        return (VideoSegment) next;
+    }
 
-        VideoFile buffer = BitrateReader.read(file, sourceCodec);
-        VideoFile intermediateResult = BitrateReader.convert(buffer, destinationCodec);
-        File result = (new AudioMixer()).fix(intermediateResult);
-        System.out.println("VideoConversionFacade: conversion completed.");
-        return result;
+    private interface Stage {
+        void run() throws InterruptedException;
     }
 }
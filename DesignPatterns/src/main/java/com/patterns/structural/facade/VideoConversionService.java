@@ -0,0 +1,238 @@
+package com.patterns.structural.facade;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs batches of conversions through a {@link VideoConversionFacade} on a bounded pool of workers.
+ * Jobs with a higher priority run first, jobs of the same priority in submission order. Submitting a
+ * conversion that is already queued or running returns the future of that job instead of converting
+ * the file twice.
+ */
+public class VideoConversionService {
+
+    private final VideoConversionFacade converter;
+    private final ThreadPoolExecutor workers;
+    private final Map<JobKey, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final long startedAt = System.nanoTime();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    public VideoConversionService(VideoConversionFacade converter) {
+        this(converter, Runtime.getRuntime().availableProcessors());
+    }
+
+    public VideoConversionService(VideoConversionFacade converter, int workerCount) {
+        this.converter = converter;
+        AtomicInteger ids = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "video-conversion-" + ids.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public CompletableFuture<File> submit(String filename, String format) {
+        return submit(filename, format, 0);
+    }
+
+    /**
+     * Queues the conversion of {@code filename} to {@code format}. Cancelling the returned future
+     * removes the job from the queue; since deduplicated submissions share the future, it cancels the
+     * job for every caller.
+     */
+    public CompletableFuture<File> submit(String filename, String format, int priority) {
+        Objects.requireNonNull(filename, "filename");
+        Objects.requireNonNull(format, "format");
+        submitted.increment();
+        JobKey key = new JobKey(filename, format);
+        Job created = new Job(key, priority, sequence.getAndIncrement());
+        Job job = jobs.putIfAbsent(key, created);
+        if (job != null) {
+            deduplicated.increment();
+            promote(job, priority);
+            return job.result;
+        }
+        created.result.whenComplete((file, ex) -> {
+            // The map may hold a promoted copy of the job sharing the same future.
+            Job current = jobs.get(key);
+            if (current != null && current.result == created.result) {
+                jobs.remove(key, current);
+                if (ex instanceof CancellationException) {
+                    workers.remove(current);
+                }
+            }
+            if (ex instanceof CancellationException) {
+                cancelled.increment();
+            }
+        });
+        try {
+            workers.execute(created);
+        } catch (RejectedExecutionException ex) {
+            // Fails the future, which also drops the job from the map.
+            created.result.completeExceptionally(ex);
+        }
+        return created.result;
+    }
+
+    /**
+     * Moves a job that is still queued ahead when it is submitted again with a higher priority.
+     */
+    private void promote(Job job, int priority) {
+        if (priority <= job.priority || !workers.remove(job)) {
+            return;
+        }
+        Job promoted = new Job(job.key, priority, job.sequence, job.result);
+        jobs.replace(job.key, job, promoted);
+        try {
+            workers.execute(promoted);
+        } catch (RejectedExecutionException ex) {
+            job.result.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Number of jobs waiting for a worker.
+     */
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getDeduplicatedCount() {
+        return deduplicated.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    /**
+     * Completed conversions per second since the service was created.
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        return seconds == 0 ? 0 : completed.sum() / seconds;
+    }
+
+    /**
+     * Stops accepting jobs; queued jobs still run.
+     */
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queued=%d active=%d completed=%d failed=%d cancelled=%d deduplicated=%d "
+                        + "throughput=%.1f/s", getQueueDepth(), getActiveCount(), getCompletedCount(),
+                getFailedCount(), getCancelledCount(), getDeduplicatedCount(), getThroughput());
+    }
+
+    private class Job implements Runnable, Comparable<Job> {
+        final JobKey key;
+        final int priority;
+        final long sequence;
+        final CompletableFuture<File> result;
+
+        Job(JobKey key, int priority, long sequence) {
+            this(key, priority, sequence, new CompletableFuture<>());
+        }
+
+        Job(JobKey key, int priority, long sequence, CompletableFuture<File> result) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                File file = converter.convertVideo(key.filename, key.format);
+                if (result.complete(file)) {
+                    completed.increment();
+                }
+            } catch (Throwable ex) {
+                if (result.completeExceptionally(ex)) {
+                    failed.increment();
+                }
+                if (ex instanceof Error) {
+                    throw (Error) ex;
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int byPriority = Integer.compare(other.priority, priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static class JobKey {
+        final String filename;
+        final String format;
+
+        JobKey(String filename, String format) {
+            this.filename = filename;
+            this.format = format;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof JobKey)) {
+                return false;
+            }
+            JobKey other = (JobKey) o;
+            return filename.equals(other.filename) && format.equals(other.format);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * filename.hashCode() + format.hashCode();
+        }
+    }
+}
@@ -1,10 +1,31 @@
 package com.patterns.structural.facade.complexlib;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 
 public class AudioMixer {
     public File fix(VideoFile result) {
         System.out.println("AudioMixer: fixing audio...");
         return new File("tmp");
     }
+
+    /**
+     * Writes the mixed result to {@code output}, which belongs to the caller, and returns it.
+     */
+    public File fix(VideoFile result, File output) {
+        System.out.println("AudioMixer: fixing audio into " + output.getName() + "...");
+        try {
+            Files.write(output.toPath(), new byte[0]);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return output;
+    }
+
+    public File fix(VideoSegment segment) {
+        System.out.println("AudioMixer: fixing audio of segment " + (segment.getIndex() + 1) + "/" + segment.getCount() + "...");
+        return new File("tmp");
+    }
 }
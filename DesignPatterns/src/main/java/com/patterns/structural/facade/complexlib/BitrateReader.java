@@ -3,11 +3,21 @@ package com.patterns.structural.facade.complexlib;
 public class BitrateReader {
     public static VideoFile read(VideoFile file, Codec codec) {
         System.out.println("BitrateReader: reading file...");
-        return file;
+        return codec.decode(file);
     }
 
     public static VideoFile convert(VideoFile buffer, Codec codec) {
         System.out.println("BitrateReader: writing file...");
-        return buffer;
+        return codec.encode(buffer);
+    }
+
+    public static VideoSegment read(VideoFile file, Codec codec, int index, int count) {
+        System.out.println("BitrateReader: reading segment " + (index + 1) + "/" + count + "...");
+        return codec.decode(new VideoSegment(file, index, count));
+    }
+
+    public static VideoSegment convert(VideoSegment buffer, Codec codec) {
+        System.out.println("BitrateReader: writing segment " + (buffer.getIndex() + 1) + "/" + buffer.getCount() + "...");
+        return codec.encode(buffer);
     }
 }
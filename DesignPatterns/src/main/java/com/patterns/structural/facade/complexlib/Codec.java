@@ -1,3 +1,42 @@
 package com.patterns.structural.facade.complexlib;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Codecs are found through {@link java.util.ServiceLoader} by {@link CodecRegistry} and reused across
+ * conversions, so implementations need a public no-arg constructor and must drop any per-file state
+ * in {@link #reset()}.
+ */
 public interface Codec {
+    String getType();
+
+    /**
+     * File extensions handled by this codec, its type by default.
+     */
+    default Set<String> getExtensions() {
+        return Collections.singleton(getType());
+    }
+
+    default VideoFile decode(VideoFile file) {
+        return file;
+    }
+
+    default VideoFile encode(VideoFile file) {
+        return file;
+    }
+
+    /**
+     * Segment counterpart of {@link #decode(VideoFile)}, used by streaming conversions.
+     */
+    default VideoSegment decode(VideoSegment segment) {
+        return segment;
+    }
+
+    default VideoSegment encode(VideoSegment segment) {
+        return segment;
+    }
+
+    default void reset() {
+    }
 }
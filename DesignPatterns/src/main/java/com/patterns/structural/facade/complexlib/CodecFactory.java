@@ -1,14 +1,31 @@
 package com.patterns.structural.facade.complexlib;
 public class CodecFactory {
 
+    /**
+     * Codec used for types no registered codec handles.
+     */
+    public static final String DEFAULT_TYPE = "ogg";
+
+    /**
+     * Returns a pooled codec for the file; hand it back through {@link #release(Codec)}.
+     */
     public static Codec extract(VideoFile file) {
-        String type = file.getCodecType();
-        if(type.equals("mp4")) {
-            System.out.println("CodecFactory: extracting mpeg audio...");
-            return new MPEG4CompressionCodec();
-        } else {
-            System.out.println("CodecFactory: extracting ogg audio...");
-            return new OggCompressionCodec();
+        Codec codec = create(file.getCodecType());
+        System.out.println("CodecFactory: extracting " + codec.getType() + " audio...");
+        return codec;
+    }
+
+    /**
+     * Returns a pooled codec for the type or extension; hand it back through {@link #release(Codec)}.
+     */
+    public static Codec create(String type) {
+        CodecRegistry registry = CodecRegistry.getDefault();
+        return registry.acquire(registry.supports(type) ? type : DEFAULT_TYPE);
+    }
+
+    public static void release(Codec codec) {
+        if (codec != null) {
+            CodecRegistry.getDefault().release(codec);
         }
     }
 }
@@ -0,0 +1,88 @@
+package com.patterns.structural.facade.complexlib;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Codecs by type and file extension, loaded once through {@link ServiceLoader} from
+ * {@code META-INF/services/com.patterns.structural.facade.complexlib.Codec}.
+ *
+ * Instances are pooled per thread: {@link #acquire(String)} hands out a reset codec from the pool of the
+ * calling thread, creating one only when it is empty, and {@link #release(Codec)} puts it back.
+ */
+public class CodecRegistry {
+
+    private static final int MAX_POOLED_PER_TYPE = 4;
+
+    private final Map<String, Supplier<Codec>> factories = new HashMap<>();
+    private final Map<String, String> types = new HashMap<>();
+    private final ThreadLocal<Map<String, ArrayDeque<Codec>>> pools = ThreadLocal.withInitial(HashMap::new);
+
+    private static class DefaultHolder {
+        static final CodecRegistry INSTANCE = load(CodecRegistry.class.getClassLoader());
+    }
+
+    public static CodecRegistry getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    public static CodecRegistry load(ClassLoader classLoader) {
+        CodecRegistry registry = new CodecRegistry();
+        ServiceLoader.load(Codec.class, classLoader).stream()
+                .forEach(provider -> registry.register(provider.get(), provider::get));
+        return registry;
+    }
+
+    /**
+     * @param sample an instance of the codec, used to read its type and extensions
+     */
+    public void register(Codec sample, Supplier<Codec> factory) {
+        String type = sample.getType();
+        factories.put(type, factory);
+        types.put(type, type);
+        for (String extension : sample.getExtensions()) {
+            types.putIfAbsent(extension, type);
+        }
+    }
+
+    public boolean supports(String typeOrExtension) {
+        return types.containsKey(typeOrExtension);
+    }
+
+    /**
+     * Codec type handling the type or extension, or {@code null}.
+     */
+    public String getType(String typeOrExtension) {
+        return types.get(typeOrExtension);
+    }
+
+    public Set<String> getTypes() {
+        return Collections.unmodifiableSet(factories.keySet());
+    }
+
+    public Codec acquire(String typeOrExtension) {
+        String type = types.get(typeOrExtension);
+        if (type == null) {
+            throw new IllegalArgumentException("No codec registered for '" + typeOrExtension + "'");
+        }
+        ArrayDeque<Codec> pool = pools.get().get(type);
+        Codec codec = pool == null ? null : pool.pollFirst();
+        return codec != null ? codec : factories.get(type).get();
+    }
+
+    /**
+     * Resets the codec and keeps it for the next {@link #acquire(String)} on the calling thread.
+     */
+    public void release(Codec codec) {
+        codec.reset();
+        ArrayDeque<Codec> pool = pools.get().computeIfAbsent(codec.getType(), type -> new ArrayDeque<>());
+        if (pool.size() < MAX_POOLED_PER_TYPE) {
+            pool.addFirst(codec);
+        }
+    }
+}
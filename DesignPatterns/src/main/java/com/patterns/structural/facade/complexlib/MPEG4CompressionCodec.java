@@ -1,4 +1,17 @@
 package com.patterns.structural.facade.complexlib;
+
+import java.util.Set;
+
 public class MPEG4CompressionCodec implements Codec {
     public String type = "mp4";
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public Set<String> getExtensions() {
+        return Set.of("mp4", "m4v");
+    }
 }
@@ -1,4 +1,17 @@
 package com.patterns.structural.facade.complexlib;
+
+import java.util.Set;
+
 public class OggCompressionCodec implements Codec {
     public String type = "ogg";
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public Set<String> getExtensions() {
+        return Set.of("ogg", "ogv");
+    }
 }
@@ -0,0 +1,20 @@
+package com.patterns.structural.facade.complexlib;
+
+import lombok.Getter;
+
+@Getter
+public class VideoSegment {
+    private VideoFile file;
+    private int index;
+    private int count;
+
+    public VideoSegment(VideoFile file, int index, int count) {
+        this.file = file;
+        this.index = index;
+        this.count = count;
+    }
+
+    public boolean isLast() {
+        return index == count - 1;
+    }
+}
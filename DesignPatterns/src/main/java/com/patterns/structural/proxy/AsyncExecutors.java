@@ -0,0 +1,43 @@
+package com.patterns.structural.proxy;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Default executor for the asynchronous {@link ThirdPartyYouTubeLib} calls: one virtual thread per
+ * call when the JVM has them (Java 21+), otherwise a cached pool of daemon threads.
+ */
+class AsyncExecutors {
+
+    private static volatile Executor defaultExecutor;
+
+    private AsyncExecutors() {
+    }
+
+    static Executor defaultExecutor() {
+        Executor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (AsyncExecutors.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    executor = createDefaultExecutor();
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static Executor createDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "youtube-async");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.patterns.structural.proxy;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe LRU cache holding at most {@code maxSize} entries, each of them for at most {@code ttl}.
+ *
+ * Keys are spread by hash over independently locked segments, each an LRU of its share of
+ * {@code maxSize}, so concurrent lookups of different keys rarely wait on each other. Recency is
+ * therefore tracked per segment: the entry evicted is the least recently used of its segment.
+ */
+public class BoundedCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 64;
+    // Smaller segments would evict noticeably out of global LRU order.
+    private static final int MIN_SEGMENT_SIZE = 1024;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Segment<K, V>[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BoundedCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(maxSize / count + (i < maxSize % count ? 1 : 0));
+        }
+    }
+
+    public V get(K key) {
+        long now = System.nanoTime();
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.entries.get(key);
+            if (entry != null && now - entry.writtenAt > ttlNanos) {
+                segment.entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /**
+     * Like {@link #get(Object)} but not counted in the hit ratio, for internal re-checks.
+     */
+    public V peek(K key) {
+        long now = System.nanoTime();
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.entries.get(key);
+            return entry == null || now - entry.writtenAt > ttlNanos ? null : entry.value;
+        }
+    }
+
+    public void put(K key, V value) {
+        Entry<V> entry = new Entry<>(value, System.nanoTime());
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.entries.put(key, entry);
+            Iterator<Map.Entry<K, Entry<V>>> eldest = segment.entries.entrySet().iterator();
+            while (segment.entries.size() > segment.maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * @return whether a live entry was removed
+     */
+    public boolean invalidate(K key) {
+        long now = System.nanoTime();
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.entries.remove(key);
+            return entry != null && now - entry.writtenAt <= ttlNanos;
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public double getHitRatio() {
+        long hit = getHitCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d/%d hits=%d misses=%d hitRatio=%.2f evictions=%d expirations=%d",
+                size(), maxSize, getHitCount(), getMissCount(), getHitRatio(), getEvictionCount(),
+                getExpirationCount());
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static class Segment<K, V> {
+        final int maxSize;
+        final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long writtenAt;
+
+        Entry(V value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.patterns.structural.proxy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Second cache tier on disk that survives restarts. Videos are appended to a single log file as
+ * {@code [length][crc32][written at][key][id][title][data]} entries; the index of the file is rebuilt
+ * lazily on first use, skipping entries whose checksum does not match and dropping a torn tail.
+ * When the file outgrows {@code maxBytes} the most recently used entries are rewritten into half of it.
+ */
+@Slf4j
+public class DiskVideoCache {
+
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final Path file;
+    private final long maxBytes;
+    private final long ttlMillis;
+    // Least recently used first, so compaction keeps the tail.
+    private final LinkedHashMap<String, Slot> index = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean loaded;
+    private long size;
+
+    public DiskVideoCache(Path file, long maxBytes, Duration ttl) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    public synchronized Video get(String key) {
+        try {
+            load();
+            Slot slot = index.get(key);
+            if (slot == null) {
+                return null;
+            }
+            Entry entry = read(slot);
+            if (entry == null || System.currentTimeMillis() - entry.writtenAt > ttlMillis) {
+                index.remove(key);
+                return null;
+            }
+            return entry.video;
+        } catch (IOException ex) {
+            log.warn("Reading '{}' from the disk cache failed.", key, ex);
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, Video video) {
+        try {
+            load();
+            byte[] entry = encode(key, video, System.currentTimeMillis());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long position = channel.size();
+                ByteBuffer buffer = ByteBuffer.wrap(entry);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+                index.remove(key);
+                index.put(key, new Slot(position, entry.length));
+                size = position + entry.length;
+            }
+            if (size > maxBytes) {
+                compact();
+            }
+        } catch (IOException ex) {
+            log.warn("Writing '{}' to the disk cache failed.", key, ex);
+        }
+    }
+
+    public synchronized int size() {
+        try {
+            load();
+        } catch (IOException ex) {
+            return 0;
+        }
+        return index.size();
+    }
+
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long fileSize = Files.size(file);
+            long position = 0;
+            while (position + HEADER_BYTES <= fileSize) {
+                int length = in.readInt();
+                long crc = in.readLong();
+                if (length < 0 || position + HEADER_BYTES + length > fileSize) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (checksum(payload) == crc) {
+                    String key = new DataInputStream(new ByteArrayInputStream(payload, Long.BYTES, length - Long.BYTES)).readUTF();
+                    index.remove(key);
+                    index.put(key, new Slot(position, HEADER_BYTES + length));
+                } else {
+                    log.warn("Skipping corrupted disk cache entry at {}.", position);
+                }
+                position += HEADER_BYTES + length;
+            }
+            size = position;
+        }
+        if (size < Files.size(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(size);
+            }
+        }
+        log.info("Loaded {} videos from the disk cache.", index.size());
+    }
+
+    private Entry read(Slot slot) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(slot.length);
+        try (FileChannel channel = FileChannel.open(file)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, slot.position + buffer.position()) == -1) {
+                    return null;
+                }
+            }
+        }
+        buffer.flip();
+        int length = buffer.getInt();
+        long crc = buffer.getLong();
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        if (checksum(payload) != crc) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long writtenAt = in.readLong();
+        in.readUTF();
+        Video video = new Video(in.readUTF(), in.readUTF());
+        video.data = in.readUTF();
+        return new Entry(video, writtenAt);
+    }
+
+    private void compact() throws IOException {
+        List<Map.Entry<String, Slot>> kept = new ArrayList<>();
+        long keptBytes = 0;
+        List<Map.Entry<String, Slot>> newestFirst = new ArrayList<>(index.entrySet());
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            Map.Entry<String, Slot> entry = newestFirst.get(i);
+            if (keptBytes + entry.getValue().length > maxBytes / 2) {
+                break;
+            }
+            kept.add(0, entry);
+            keptBytes += entry.getValue().length;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        LinkedHashMap<String, Slot> compacted = new LinkedHashMap<>(16, 0.75f, true);
+        try (FileChannel source = FileChannel.open(file);
+             FileChannel target = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            for (Map.Entry<String, Slot> entry : kept) {
+                Slot slot = entry.getValue();
+                long copied = 0;
+                while (copied < slot.length) {
+                    long n = source.transferTo(slot.position + copied, slot.length - copied, target);
+                    if (n <= 0) {
+                        break;
+                    }
+                    copied += n;
+                }
+                if (copied < slot.length) {
+                    // The file ends inside the slot: drop the partial copy and the entry.
+                    log.warn("Dropping truncated disk cache entry '{}' while compacting.", entry.getKey());
+                    target.truncate(position);
+                    target.position(position);
+                    continue;
+                }
+                compacted.put(entry.getKey(), new Slot(position, slot.length));
+                position += slot.length;
+            }
+            size = position;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index.clear();
+        index.putAll(compacted);
+    }
+
+    private static byte[] encode(String key, Video video, long writtenAt) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeLong(writtenAt);
+        out.writeUTF(key);
+        out.writeUTF(video.id);
+        out.writeUTF(video.title);
+        out.writeUTF(video.data);
+        byte[] bytes = payload.toByteArray();
+        return ByteBuffer.allocate(HEADER_BYTES + bytes.length)
+                .putInt(bytes.length)
+                .putLong(checksum(bytes))
+                .put(bytes)
+                .array();
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    private static class Slot {
+        final long position;
+        final int length;
+
+        Slot(long position, int length) {
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    private static class Entry {
+        final Video video;
+        final long writtenAt;
+
+        Entry(Video video, long writtenAt) {
+            this.video = video;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
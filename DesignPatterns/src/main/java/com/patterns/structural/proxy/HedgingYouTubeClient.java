@@ -0,0 +1,202 @@
+package com.patterns.structural.proxy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cuts the latency tail of an upstream by hedging: when a call takes longer than the
+ * {@code hedgePercentile} of recently observed latencies a second identical call is issued, the first
+ * one to answer wins and the other one is cancelled. Hedges are capped to {@code hedgeBudget} of all
+ * calls. A call still unanswered after {@code deadline} is served from the last answer seen for the
+ * same request within the last day, or fails.
+ */
+@Slf4j
+public class HedgingYouTubeClient implements ThirdPartyYouTubeLib {
+
+    private static final int WINDOW = 1024;
+    private static final int MIN_SAMPLES = 20;
+    private static final String POPULAR = "\0popular";
+    private static final int MAX_STALE_ENTRIES = 10_000;
+    private static final Duration MAX_STALENESS = Duration.ofDays(1);
+
+    private final ThirdPartyYouTubeLib youTubeService;
+    private final ExecutorService executor;
+    private final double hedgePercentile;
+    private final double hedgeBudget;
+    private final long deadlineNanos;
+
+    private final long[] samples = new long[WINDOW];
+    private int sampleCount;
+    private int nextSample;
+    private long hedgeDelayNanos = Long.MAX_VALUE;
+
+    private final BoundedCache<String, Object> lastKnown = new BoundedCache<>(MAX_STALE_ENTRIES, MAX_STALENESS);
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder deadlineFailures = new LongAdder();
+
+    /**
+     * @param hedgePercentile percentile of observed latency after which a hedge is sent, e.g. 95
+     * @param hedgeBudget     maximum share of calls that may be hedged, e.g. 0.1
+     */
+    public HedgingYouTubeClient(ThirdPartyYouTubeLib youTubeService, ExecutorService executor,
+                                double hedgePercentile, double hedgeBudget, Duration deadline) {
+        this.youTubeService = youTubeService;
+        this.executor = executor;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeBudget = hedgeBudget;
+        this.deadlineNanos = deadline.toNanos();
+    }
+
+    @Override
+    public HashMap<String, Video> popularVideos() {
+        return call(POPULAR, youTubeService::popularVideos);
+    }
+
+    @Override
+    public Video getVideo(String videoId) {
+        return call(videoId, () -> youTubeService.getVideo(videoId));
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    public long getStaleServedCount() {
+        return staleServed.sum();
+    }
+
+    public long getDeadlineFailureCount() {
+        return deadlineFailures.sum();
+    }
+
+    public synchronized Duration getHedgeDelay() {
+        return hedgeDelayNanos == Long.MAX_VALUE ? null : Duration.ofNanos(hedgeDelayNanos);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T call(String key, Callable<T> request) {
+        calls.increment();
+        long start = System.nanoTime();
+        long deadline = start + deadlineNanos;
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        List<Future<T>> attempts = new ArrayList<>(2);
+        attempts.add(completion.submit(timed(request)));
+        Future<T> hedge = null;
+        Throwable failure = null;
+        try {
+            // A hedge sent at the deadline could never answer in time.
+            long hedgeDelay = hedgeDelay();
+            boolean hedgeable = hedgeDelay < deadlineNanos;
+            Future<T> done = completion.poll(hedgeable ? hedgeDelay : deadlineNanos, TimeUnit.NANOSECONDS);
+            if (done == null && hedgeable && mayHedge()) {
+                hedges.increment();
+                hedge = completion.submit(timed(request));
+                attempts.add(hedge);
+            }
+            int pending = attempts.size() - (done == null ? 0 : 1);
+            while (true) {
+                if (done == null) {
+                    done = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        break;
+                    }
+                    pending--;
+                }
+                try {
+                    T value = done.get();
+                    if (done == hedge) {
+                        hedgeWins.increment();
+                    }
+                    lastKnown.put(key, value);
+                    return value;
+                } catch (ExecutionException ex) {
+                    failure = ex.getCause();
+                    if (pending == 0) {
+                        break;
+                    }
+                    done = null;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failure = ex;
+        } finally {
+            for (Future<T> attempt : attempts) {
+                attempt.cancel(true);
+            }
+        }
+        Object stale = lastKnown.get(key);
+        if (stale != null) {
+            staleServed.increment();
+            log.warn("Serving stale '{}' after {}.", key, failure == null ? "deadline" : failure.toString());
+            return (T) stale;
+        }
+        if (failure == null) {
+            deadlineFailures.increment();
+            throw new IllegalStateException("Upstream did not answer within the deadline",
+                    new TimeoutException(key));
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        throw new IllegalStateException("Upstream call failed", failure);
+    }
+
+    private <T> Callable<T> timed(Callable<T> request) {
+        return () -> {
+            long start = System.nanoTime();
+            T value = request.call();
+            // A cancelled attempt returns early and would drag the percentile down.
+            if (!Thread.currentThread().isInterrupted()) {
+                recordLatency(System.nanoTime() - start);
+            }
+            return value;
+        };
+    }
+
+    private boolean mayHedge() {
+        return hedges.sum() < hedgeBudget * calls.sum();
+    }
+
+    private synchronized long hedgeDelay() {
+        return hedgeDelayNanos;
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        samples[nextSample] = nanos;
+        nextSample = (nextSample + 1) % WINDOW;
+        sampleCount = Math.min(sampleCount + 1, WINDOW);
+        // Re-sorting the window on every call is not worth it, the percentile moves slowly.
+        if (sampleCount >= MIN_SAMPLES && (sampleCount < WINDOW || nextSample % 32 == 0)) {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(hedgePercentile / 100.0 * sampleCount) - 1;
+            hedgeDelayNanos = sorted[Math.max(0, Math.min(rank, sampleCount - 1))];
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.patterns.structural.proxy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Picks which of {@code keys} keys a simulated client asks for next.
+ */
+public abstract class KeyDistribution {
+
+    protected final int keys;
+
+    protected KeyDistribution(int keys) {
+        this.keys = keys;
+    }
+
+    public abstract int next(Random random);
+
+    public static KeyDistribution uniform(int keys) {
+        return new KeyDistribution(keys) {
+            @Override
+            public int next(Random random) {
+                return random.nextInt(this.keys);
+            }
+
+            @Override
+            public String toString() {
+                return "uniform(" + this.keys + ")";
+            }
+        };
+    }
+
+    /**
+     * Key {@code k} is picked with a probability proportional to {@code 1 / (k + 1)^exponent};
+     * an exponent around 1 resembles real video popularity.
+     */
+    public static KeyDistribution zipf(int keys, double exponent) {
+        double[] cdf = new double[keys];
+        double sum = 0;
+        for (int k = 0; k < keys; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < keys; k++) {
+            cdf[k] /= sum;
+        }
+        return new KeyDistribution(keys) {
+            @Override
+            public int next(Random random) {
+                int k = Arrays.binarySearch(cdf, random.nextDouble());
+                return Math.min(k >= 0 ? k : -k - 1, this.keys - 1);
+            }
+
+            @Override
+            public String toString() {
+                return "zipf(" + this.keys + ", " + exponent + ")";
+            }
+        };
+    }
+}
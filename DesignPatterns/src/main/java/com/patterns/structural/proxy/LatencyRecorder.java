@@ -0,0 +1,80 @@
+package com.patterns.structural.proxy;
+
+/**
+ * HdrHistogram style latency recorder: values are kept in log-linear buckets, 64 per power of two,
+ * so every percentile is reported within 1.6% of the recorded value whatever its magnitude. Not
+ * thread safe; give every thread its own recorder and {@link #add(LatencyRecorder)} them.
+ */
+public class LatencyRecorder {
+
+    private static final int SUB_BUCKETS = 64;
+
+    private final long[] counts = new long[SUB_BUCKETS * 59];
+    private long count;
+    private long total;
+    private long max;
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[index(v)]++;
+        count++;
+        total += v;
+        max = Math.max(max, v);
+    }
+
+    public void add(LatencyRecorder other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValue(i));
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - 6;
+        return SUB_BUCKETS * (magnitude + 1) + (int) (value >>> magnitude) - SUB_BUCKETS;
+    }
+
+    private static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+}
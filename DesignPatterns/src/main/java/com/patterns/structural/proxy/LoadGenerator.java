@@ -0,0 +1,211 @@
+package com.patterns.structural.proxy;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Drives a {@link ThirdPartyYouTubeLib} with concurrent clients and reports throughput, cache hit
+ * ratio and latency percentiles, so that caching strategies can be compared under the same load.
+ *
+ * The hit ratio is measured at the upstream: every request that did not reach the
+ * {@link SimulatedYouTubeService} counts as a hit, whatever the implementation under test.
+ */
+public class LoadGenerator {
+
+    private int clients = 8;
+    private KeyDistribution distribution = KeyDistribution.zipf(1000, 1.0);
+    private double popularRatio = 0.1;
+    private Duration warmup = Duration.ofSeconds(1);
+    private Duration duration = Duration.ofSeconds(5);
+    private long seed = 42;
+
+    public void setClients(int clients) {
+        this.clients = clients;
+    }
+
+    public void setDistribution(KeyDistribution distribution) {
+        this.distribution = distribution;
+    }
+
+    /**
+     * Share of requests that call {@code popularVideos()} instead of {@code getVideo()}.
+     */
+    public void setPopularRatio(double popularRatio) {
+        this.popularRatio = popularRatio;
+    }
+
+    public void setWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param subject builds the implementation under test on top of the given upstream
+     */
+    public LoadReport run(String name, Function<ThirdPartyYouTubeLib, ThirdPartyYouTubeLib> subject,
+                          SimulatedYouTubeService upstream) throws InterruptedException {
+        ThirdPartyYouTubeLib target = subject.apply(upstream);
+        if (!warmup.isZero()) {
+            drive(target, warmup, seed - 1);
+        }
+        upstream.resetCallCount();
+        Measurement measurement = drive(target, duration, seed);
+        return new LoadReport(name, measurement.requests, measurement.errors.sum(), measurement.elapsedNanos,
+                upstream.getCallCount(), measurement.latencies);
+    }
+
+    private Measurement drive(ThirdPartyYouTubeLib target, Duration length, long seed) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        LatencyRecorder[] recorders = new LatencyRecorder[clients];
+        LongAdder errors = new LongAdder();
+        List<Thread> threads = new ArrayList<>(clients);
+        long[] stopAt = new long[1];
+        for (int c = 0; c < clients; c++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders[c] = recorder;
+            Random random = new Random(seed * 31 + c);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                while (System.nanoTime() < stopAt[0]) {
+                    boolean popular = random.nextDouble() < popularRatio;
+                    String videoId = videoId(distribution.next(random));
+                    long begin = System.nanoTime();
+                    try {
+                        if (popular) {
+                            target.popularVideos();
+                        } else {
+                            target.getVideo(videoId);
+                        }
+                    } catch (RuntimeException ex) {
+                        errors.increment();
+                    }
+                    recorder.record((System.nanoTime() - begin) / 1000);
+                }
+            }, "load-client-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        stopAt[0] = begin + length.toNanos();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Measurement measurement = new Measurement();
+        measurement.elapsedNanos = System.nanoTime() - begin;
+        measurement.errors = errors;
+        for (LatencyRecorder recorder : recorders) {
+            measurement.latencies.add(recorder);
+        }
+        measurement.requests = measurement.latencies.getCount();
+        return measurement;
+    }
+
+    static String videoId(int key) {
+        return String.format("video%07d", key);
+    }
+
+    private static class Measurement {
+        long requests;
+        LongAdder errors;
+        long elapsedNanos;
+        final LatencyRecorder latencies = new LatencyRecorder();
+    }
+
+    public static class LoadReport {
+        private final String name;
+        private final long requests;
+        private final long errors;
+        private final long elapsedNanos;
+        private final long upstreamCalls;
+        private final LatencyRecorder latencies;
+
+        LoadReport(String name, long requests, long errors, long elapsedNanos, long upstreamCalls,
+                   LatencyRecorder latencies) {
+            this.name = name;
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.upstreamCalls = upstreamCalls;
+            this.latencies = latencies;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getThroughput() {
+            return requests / (elapsedNanos / 1e9);
+        }
+
+        public double getHitRatio() {
+            return requests == 0 ? 0 : Math.max(0, 1 - (double) upstreamCalls / requests);
+        }
+
+        /**
+         * Latencies in microseconds.
+         */
+        public LatencyRecorder getLatencies() {
+            return latencies;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-34s %9.0f req/s  hit ratio %5.1f%%  p50 %7dus  p90 %7dus  p99 %7dus"
+                            + "  p99.9 %7dus  max %7dus  errors %d",
+                    name, getThroughput(), getHitRatio() * 100, latencies.getPercentile(50),
+                    latencies.getPercentile(90), latencies.getPercentile(99), latencies.getPercentile(99.9),
+                    latencies.getMax(), errors);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // Per request cache logging would be the bottleneck under load.
+        ((Logger) LoggerFactory.getLogger("com.patterns.structural.proxy")).setLevel(Level.WARN);
+
+        LoadGenerator generator = new LoadGenerator();
+        generator.setClients(16);
+        generator.setDistribution(KeyDistribution.zipf(10_000, 1.0));
+        Duration upstreamLatency = Duration.ofMillis(2);
+
+        List<LoadReport> reports = new ArrayList<>();
+        reports.add(generator.run("no cache", upstream -> upstream, new SimulatedYouTubeService(upstreamLatency)));
+        for (int size : new int[]{100, 1_000, 5_000}) {
+            reports.add(generator.run("YouTubeCacheProxy LRU " + size,
+                    upstream -> new YouTubeCacheProxy(upstream, size, Duration.ofMinutes(10)),
+                    new SimulatedYouTubeService(upstreamLatency)));
+        }
+        generator.setDistribution(KeyDistribution.uniform(10_000));
+        reports.add(generator.run("YouTubeCacheProxy LRU 1000 uniform",
+                upstream -> new YouTubeCacheProxy(upstream, 1_000, Duration.ofMinutes(10)),
+                new SimulatedYouTubeService(upstreamLatency)));
+        System.out.println("Workload: " + generator.clients + " clients, zipf(10000, 1.0) unless noted, "
+                + (int) (generator.popularRatio * 100) + "% popularVideos, upstream latency "
+                + upstreamLatency.toMillis() + "ms");
+        reports.forEach(System.out::println);
+    }
+}
@@ -0,0 +1,111 @@
+package com.patterns.structural.proxy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Loads keys in the background on a small pool of workers. At most {@code budget} prefetches are
+ * queued or running at any time, the rest are dropped. Keeps track of how many prefetched keys were
+ * asked for afterwards; the most recent {@code 10000} prefetched keys are remembered for an hour.
+ */
+@Slf4j
+public class Prefetcher {
+
+    private static final int MAX_TRACKED = 10_000;
+    private static final Duration TRACKING_TTL = Duration.ofHours(1);
+
+    private final Consumer<String> loader;
+    private final int budget;
+    private final ThreadPoolExecutor workers;
+    private final AtomicInteger pending = new AtomicInteger();
+    // Keys prefetched and not asked for yet; bounded since most are evicted or never clicked.
+    private final BoundedCache<String, Boolean> prefetched = new BoundedCache<>(MAX_TRACKED, TRACKING_TTL);
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    public Prefetcher(Consumer<String> loader, int workers, int budget) {
+        this.loader = loader;
+        this.budget = budget;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "prefetch-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    public void prefetch(Collection<String> keys) {
+        for (String key : keys) {
+            if (prefetched.peek(key) != null) {
+                continue;
+            }
+            if (pending.incrementAndGet() > budget) {
+                pending.decrementAndGet();
+                dropped.increment();
+                continue;
+            }
+            try {
+                workers.execute(() -> load(key));
+            } catch (RejectedExecutionException ex) {
+                pending.decrementAndGet();
+                dropped.increment();
+            }
+        }
+    }
+
+    /**
+     * Called when a key was served from the cache; counts it once if a prefetch put it there.
+     */
+    public void recordHit(String key) {
+        if (prefetched.invalidate(key)) {
+            hits.increment();
+        }
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void load(String key) {
+        try {
+            loader.accept(key);
+            prefetched.put(key, Boolean.TRUE);
+            completed.increment();
+        } catch (RuntimeException ex) {
+            failed.increment();
+            log.warn("Prefetching '{}' failed.", key, ex);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.patterns.structural.proxy;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Quiet stand-in for {@link ThirdPartyYouTubeClass} with a fixed latency, counting the calls it gets.
+ */
+public class SimulatedYouTubeService implements ThirdPartyYouTubeLib {
+
+    private final long latencyNanos;
+    private final LongAdder calls = new LongAdder();
+
+    public SimulatedYouTubeService(Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    @Override
+    public HashMap<String, Video> popularVideos() {
+        experienceNetworkLatency();
+        HashMap<String, Video> videos = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            videos.put(LoadGenerator.videoId(i), new Video(LoadGenerator.videoId(i), "Popular video #" + i));
+        }
+        return videos;
+    }
+
+    @Override
+    public Video getVideo(String videoId) {
+        experienceNetworkLatency();
+        return new Video(videoId, "Some video title");
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    public void resetCallCount() {
+        calls.reset();
+    }
+
+    private void experienceNetworkLatency() {
+        calls.increment();
+        try {
+            Thread.sleep(latencyNanos / 1_000_000, (int) (latencyNanos % 1_000_000));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
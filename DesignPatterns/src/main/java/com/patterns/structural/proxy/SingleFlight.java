@@ -0,0 +1,105 @@
+package com.patterns.structural.proxy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller runs the loader, the others
+ * wait for it and get the same result or the same failure.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder shared = new LongAdder();
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            shared.increment();
+            return join(existing);
+        }
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            call.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Batch form of {@link #execute(Object, Supplier)}: keys already being loaded by another caller are
+     * waited for, and the others are loaded together with a single {@code loader} call, during which
+     * single callers for those keys wait for the batch. Keys the loader leaves out map to {@code null}.
+     */
+    public Map<K, V> executeAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> waiting = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (owned.containsKey(key) || waiting.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> call = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+            if (existing != null) {
+                shared.increment();
+                waiting.put(key, existing);
+            } else {
+                owned.put(key, call);
+            }
+        }
+        Map<K, V> values = new LinkedHashMap<>();
+        if (!owned.isEmpty()) {
+            try {
+                Map<K, V> loaded = loader.apply(new ArrayList<>(owned.keySet()));
+                owned.forEach((key, call) -> {
+                    V value = loaded.get(key);
+                    call.complete(value);
+                    values.put(key, value);
+                });
+            } catch (RuntimeException | Error ex) {
+                owned.values().forEach(call -> call.completeExceptionally(ex));
+                throw ex;
+            } finally {
+                owned.forEach(inFlight::remove);
+            }
+        }
+        waiting.forEach((key, call) -> values.put(key, join(call)));
+        return values;
+    }
+
+    /**
+     * Number of calls that were served by another caller's load.
+     */
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    private static <V> V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
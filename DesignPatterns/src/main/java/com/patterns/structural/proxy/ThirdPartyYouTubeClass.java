@@ -1,5 +1,8 @@
 package com.patterns.structural.proxy;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ThirdPartyYouTubeClass implements ThirdPartyYouTubeLib {
 
@@ -15,6 +18,21 @@ public class ThirdPartyYouTubeClass implements ThirdPartyYouTubeLib {
         return getSomeVideo(videoId);
     }
 
+    @Override
+    public Map<String, Video> getVideos(Collection<String> videoIds) {
+        connectToServer("http://www.youtube.com/batch?ids=" + String.join(",", videoIds));
+        System.out.print("Downloading " + videoIds.size() + " videos... ");
+
+        experienceNetworkLatency();
+        Map<String, Video> videos = new LinkedHashMap<>();
+        for (String videoId : videoIds) {
+            videos.put(videoId, new Video(videoId, "Some video title"));
+        }
+
+        System.out.print("Done!" + "\n");
+        return videos;
+    }
+
     private int random(int min, int max) {
         return min + (int) (Math.random() * ((max - min) + 1));
     }
@@ -25,7 +43,9 @@ public class ThirdPartyYouTubeClass implements ThirdPartyYouTubeLib {
             try {
                 Thread.sleep(100);
             } catch (InterruptedException ex) {
-                ex.printStackTrace();
+                // The caller gave up on this request, e.g. a cancelled hedge.
+                Thread.currentThread().interrupt();
+                return;
             }
         }
     }
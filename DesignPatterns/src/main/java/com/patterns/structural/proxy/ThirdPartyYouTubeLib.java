@@ -1,9 +1,41 @@
 package com.patterns.structural.proxy;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface ThirdPartyYouTubeLib {
     HashMap<String, Video> popularVideos();
 
     Video getVideo(String videoId);
+
+    default CompletableFuture<Video> getVideoAsync(String videoId) {
+        return getVideoAsync(videoId, AsyncExecutors.defaultExecutor());
+    }
+
+    default CompletableFuture<Video> getVideoAsync(String videoId, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> getVideo(videoId), executor);
+    }
+
+    /**
+     * Fetches several videos at once, keyed and ordered by id. Unless overridden with a real batch
+     * call, the ids are fetched concurrently.
+     */
+    default Map<String, Video> getVideos(Collection<String> videoIds) {
+        List<CompletableFuture<Video>> calls = new ArrayList<>(videoIds.size());
+        for (String videoId : videoIds) {
+            calls.add(getVideoAsync(videoId));
+        }
+        Map<String, Video> videos = new LinkedHashMap<>();
+        int i = 0;
+        for (String videoId : videoIds) {
+            videos.put(videoId, calls.get(i++).join());
+        }
+        return videos;
+    }
 }
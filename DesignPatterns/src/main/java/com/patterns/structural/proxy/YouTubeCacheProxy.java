@@ -2,44 +2,264 @@ package com.patterns.structural.proxy;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 public class YouTubeCacheProxy implements ThirdPartyYouTubeLib {
 
+    private static final int DEFAULT_MAX_SIZE = 10_000;
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
     private ThirdPartyYouTubeLib youTubeService;
-    private HashMap<String, Video> cachePopular = new HashMap<String, Video>();
-    private HashMap<String, Video> cacheAll = new HashMap<String, Video>();
+    private volatile long popularSoftTtlNanos;
+    private volatile long popularHardTtlNanos;
+    private final AtomicBoolean popularRefreshing = new AtomicBoolean();
+    private volatile PopularVideos cachePopular;
+    private final BoundedCache<String, Video> cacheAll;
+    private final SingleFlight<String, Video> videoLoads = new SingleFlight<>();
+    private final SingleFlight<String, PopularVideos> popularLoads = new SingleFlight<>();
+    private volatile Prefetcher prefetcher;
+    private volatile DiskVideoCache diskCache;
 
     public YouTubeCacheProxy() {
-        this.youTubeService = new ThirdPartyYouTubeClass();
+        this(new ThirdPartyYouTubeClass(), DEFAULT_MAX_SIZE, DEFAULT_TTL);
+    }
+
+    public YouTubeCacheProxy(ThirdPartyYouTubeLib youTubeService, int maxSize, Duration ttl) {
+        this.youTubeService = youTubeService;
+        this.popularSoftTtlNanos = ttl.toNanos();
+        this.popularHardTtlNanos = ttl.toNanos();
+        this.cacheAll = new BoundedCache<>(maxSize, ttl);
     }
 
     @Override
     public HashMap<String, Video> popularVideos() {
-        if(cachePopular.isEmpty()) {
-            cachePopular = youTubeService.popularVideos();
+        PopularVideos popular = cachePopular;
+        long age = popular == null ? Long.MAX_VALUE : System.nanoTime() - popular.loadedAt;
+        if (age > popularHardTtlNanos) {
+            popular = popularLoads.execute("popular", this::loadPopular);
         } else {
+            if (age > popularSoftTtlNanos) {
+                refreshPopularInBackground();
+            }
             log.info("Retrieving list from cache.");
         }
-        return cachePopular;
+        // Callers get their own copy, the cached list must not change under other threads.
+        return new HashMap<>(popular.videos);
     }
+
     @Override
     public Video getVideo(String videoId) {
-        Video video = cacheAll.get(videoId);
+        Video video = cached(videoId);
 
         if(video == null) {
-            video = youTubeService.getVideo(videoId);
-            cacheAll.put(videoId, video);
-        } else {
+            video = videoLoads.execute(videoId, () -> loadVideo(videoId));
+        }
+
+        return video;
+    }
+
+    @Override
+    public CompletableFuture<Video> getVideoAsync(String videoId, Executor executor) {
+        Video video = cached(videoId);
+        if (video != null) {
+            return CompletableFuture.completedFuture(video);
+        }
+        return CompletableFuture.supplyAsync(() -> videoLoads.execute(videoId, () -> loadVideo(videoId)), executor);
+    }
+
+    /**
+     * Serves what it can from the cache and fetches all the misses with a single upstream batch call.
+     * Misses already being loaded by a concurrent call are waited for instead of fetched again.
+     */
+    @Override
+    public Map<String, Video> getVideos(Collection<String> videoIds) {
+        Map<String, Video> videos = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String videoId : videoIds) {
+            Video video = cached(videoId);
+            videos.put(videoId, video);
+            if (video == null) {
+                misses.add(videoId);
+            }
+        }
+        if (!misses.isEmpty()) {
+            videos.putAll(videoLoads.executeAll(misses, this::loadVideos));
+        }
+        return videos;
+    }
+
+    /**
+     * Looks the video up in memory, counting the hit or miss; the one lookup made per request.
+     */
+    private Video cached(String videoId) {
+        Video video = cacheAll.get(videoId);
+        if (video != null) {
+            Prefetcher prefetcher = this.prefetcher;
+            if (prefetcher != null) {
+                prefetcher.recordHit(videoId);
+            }
             log.info("Retrieved video '{}' from cache.", videoId);
         }
+        return video;
+    }
 
+    private Video loadVideo(String videoId) {
+        // Another caller may have finished loading it between our cache miss and now.
+        Video video = cacheAll.peek(videoId);
+        if (video != null) {
+            return video;
+        }
+        DiskVideoCache disk = diskCache;
+        video = disk == null ? null : disk.get(videoId);
+        if (video != null) {
+            log.info("Retrieved video '{}' from disk cache.", videoId);
+        } else {
+            video = youTubeService.getVideo(videoId);
+            if (disk != null) {
+                disk.put(videoId, video);
+            }
+        }
+        cacheAll.put(videoId, video);
         return video;
     }
 
+    private Map<String, Video> loadVideos(List<String> videoIds) {
+        Map<String, Video> videos = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        DiskVideoCache disk = diskCache;
+        for (String videoId : videoIds) {
+            Video video = cacheAll.peek(videoId);
+            if (video == null && disk != null) {
+                video = disk.get(videoId);
+                if (video != null) {
+                    cacheAll.put(videoId, video);
+                }
+            }
+            if (video == null) {
+                misses.add(videoId);
+            } else {
+                videos.put(videoId, video);
+            }
+        }
+        if (!misses.isEmpty()) {
+            youTubeService.getVideos(misses).forEach((videoId, video) -> {
+                cacheAll.put(videoId, video);
+                videos.put(videoId, video);
+                if (disk != null) {
+                    disk.put(videoId, video);
+                }
+            });
+        }
+        return videos;
+    }
+
+    private PopularVideos loadPopular() {
+        PopularVideos popular = cachePopular;
+        if (popular == null || System.nanoTime() - popular.loadedAt > popularHardTtlNanos) {
+            popular = fetchPopular();
+        }
+        return popular;
+    }
+
+    private PopularVideos fetchPopular() {
+        PopularVideos popular = new PopularVideos(youTubeService.popularVideos(), System.nanoTime());
+        cachePopular = popular;
+        Prefetcher prefetcher = this.prefetcher;
+        if (prefetcher != null) {
+            // Users usually open one of the popular videos next.
+            List<String> uncached = new ArrayList<>();
+            for (String videoId : popular.videos.keySet()) {
+                if (cacheAll.peek(videoId) == null) {
+                    uncached.add(videoId);
+                }
+            }
+            prefetcher.prefetch(uncached);
+        }
+        return popular;
+    }
+
+    private void refreshPopularInBackground() {
+        if (!popularRefreshing.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> popularLoads.execute("popular", this::fetchPopular),
+                AsyncExecutors.defaultExecutor()).whenComplete((ignored, ex) -> {
+            popularRefreshing.set(false);
+            if (ex != null) {
+                log.warn("Refreshing popular videos failed, serving the stale list.", ex);
+            }
+        });
+    }
+
+    /**
+     * Once the popular list is older than {@code soft} callers still get it immediately while it is
+     * refreshed in the background; once it is older than {@code hard} callers wait for a fresh one.
+     */
+    public void setPopularTtl(Duration soft, Duration hard) {
+        if (soft.compareTo(hard) > 0) {
+            throw new IllegalArgumentException("soft TTL must not exceed hard TTL");
+        }
+        popularSoftTtlNanos = soft.toNanos();
+        popularHardTtlNanos = hard.toNanos();
+    }
+
+    /**
+     * Fetches the videos of every newly loaded popular list in the background, with {@code workers}
+     * threads and at most {@code budget} prefetches pending at a time.
+     */
+    public void enablePrefetch(int workers, int budget) {
+        Prefetcher previous = prefetcher;
+        prefetcher = new Prefetcher(videoId -> videoLoads.execute(videoId, () -> loadVideo(videoId)), workers, budget);
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Adds a disk tier under the in-memory cache: consulted on every memory miss and filled with every
+     * upstream fetch, so a restarted proxy starts warm.
+     */
+    public void setDiskCache(DiskVideoCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    public Prefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    public BoundedCache<String, Video> getVideoCache() {
+        return cacheAll;
+    }
+
+    /**
+     * Number of cache misses that waited for a load already started by another caller.
+     */
+    public long getCoalescedLoads() {
+        return videoLoads.getSharedCount() + popularLoads.getSharedCount();
+    }
+
     public void reset() {
-        cachePopular.clear();
+        cachePopular = null;
         cacheAll.clear();
     }
+
+    private static class PopularVideos {
+        final HashMap<String, Video> videos;
+        final long loadedAt;
+
+        PopularVideos(HashMap<String, Video> videos, long loadedAt) {
+            this.videos = videos;
+            this.loadedAt = loadedAt;
+        }
+    }
 }
@@ -1,31 +1,180 @@
 package com.patterns.structural.proxy;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 
 public class YouTubeDownloader {
+    private static final String NL = System.lineSeparator();
+    private static final String RULE = "-------------------------------";
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
     private ThirdPartyYouTubeLib api;
+    private final BoundedCache<String, RenderedPage> pages;
+    private volatile PopularPage popular;
 
     public YouTubeDownloader(ThirdPartyYouTubeLib api) {
+        this(api, 1_000);
+    }
+
+    /**
+     * @param pageCacheSize number of rendered video pages kept in memory
+     */
+    public YouTubeDownloader(ThirdPartyYouTubeLib api, int pageCacheSize) {
         this.api = api;
+        this.pages = new BoundedCache<>(pageCacheSize, Duration.ofDays(1));
     }
 
     public void renderVideoPage(String videoId) {
-        Video video = api.getVideo(videoId);
-        System.out.println("\n-------------------------------");
-        System.out.println("Video page (imagine fancy HTML)");
-        System.out.println("ID: " + video.id);
-        System.out.println("Title: " + video.title);
-        System.out.println("Video: " + video.data);
-        System.out.println("-------------------------------\n");
+        renderVideoPage(api.getVideo(videoId));
+    }
+
+    /**
+     * Writes the page of the given video to {@code out} in a single call.
+     */
+    public void renderVideoPage(String videoId, Appendable out) throws IOException {
+        out.append(videoPage(api.getVideo(videoId)));
+    }
+
+    /**
+     * Renders the pages in order, fetching them through the asynchronous API with at most
+     * {@code maxConcurrency} requests in flight.
+     */
+    public void renderVideoPages(Collection<String> videoIds, int maxConcurrency) {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<Video>> pages = new ArrayList<>(videoIds.size());
+        for (String videoId : videoIds) {
+            permits.acquireUninterruptibly();
+            pages.add(api.getVideoAsync(videoId).whenComplete((video, ex) -> permits.release()));
+        }
+        for (CompletableFuture<Video> page : pages) {
+            renderVideoPage(page.join());
+        }
+    }
+
+    private void renderVideoPage(Video video) {
+        System.out.print(videoPage(video));
     }
 
     public void renderPopularVideos() {
-        HashMap<String, Video> list = api.popularVideos();
-        System.out.println("\n-------------------------------");
-        System.out.println("Most popular videos on YouTube (imagine fancy HTML)");
-        for (Video video : list.values()) {
-            System.out.println("ID: " + video.id + " / Title: " + video.title);
+        System.out.print(popularPage(api.popularVideos()));
+    }
+
+    /**
+     * Writes the popular videos page to {@code out} in a single call.
+     */
+    public void renderPopularVideos(Appendable out) throws IOException {
+        out.append(popularPage(api.popularVideos()));
+    }
+
+    public BoundedCache<String, RenderedPage> getPageCache() {
+        return pages;
+    }
+
+    /**
+     * Returns the rendered page of the video, formatting it only when the video it was rendered from
+     * is no longer the one the API hands out.
+     */
+    private String videoPage(Video video) {
+        RenderedPage page = pages.get(video.id);
+        if (page != null && page.isRenderedFrom(video)) {
+            return page.text;
+        }
+        StringBuilder buffer = buffer();
+        buffer.append(NL).append(RULE).append(NL)
+                .append("Video page (imagine fancy HTML)").append(NL)
+                .append("ID: ").append(video.id).append(NL)
+                .append("Title: ").append(video.title).append(NL)
+                .append("Video: ").append(video.data).append(NL)
+                .append(RULE).append(NL).append(NL);
+        page = new RenderedPage(video, buffer.toString());
+        pages.put(video.id, page);
+        return page.text;
+    }
+
+    /**
+     * Returns the rendered list, reformatting it only when one of the videos changed. The list is
+     * compared video by video because the API hands out a fresh map on every call.
+     */
+    private String popularPage(HashMap<String, Video> list) {
+        Video[] videos = list.values().toArray(new Video[0]);
+        PopularPage page = popular;
+        if (page != null && page.isRenderedFrom(videos)) {
+            return page.text;
+        }
+        StringBuilder buffer = buffer();
+        buffer.append(NL).append(RULE).append(NL)
+                .append("Most popular videos on YouTube (imagine fancy HTML)").append(NL);
+        for (Video video : videos) {
+            buffer.append("ID: ").append(video.id).append(" / Title: ").append(video.title).append(NL);
+        }
+        buffer.append(RULE).append(NL).append(NL);
+        page = new PopularPage(videos, buffer.toString());
+        popular = page;
+        return page.text;
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder buffer = BUFFERS.get();
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    /**
+     * A page together with the video state it was rendered from. Videos are compared by identity: the
+     * proxy hands out a new instance whenever its cached entry is refreshed.
+     */
+    public static class RenderedPage {
+        private final Video video;
+        private final String title;
+        private final String data;
+        private final String text;
+
+        RenderedPage(Video video, String text) {
+            this.video = video;
+            this.title = video.title;
+            this.data = video.data;
+            this.text = text;
+        }
+
+        boolean isRenderedFrom(Video video) {
+            return this.video == video && title == video.title && data == video.data;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    private static class PopularPage {
+        private final Video[] videos;
+        private final String[] titles;
+        private final String text;
+
+        PopularPage(Video[] videos, String text) {
+            this.videos = videos;
+            this.titles = new String[videos.length];
+            for (int i = 0; i < videos.length; i++) {
+                titles[i] = videos[i].title;
+            }
+            this.text = text;
+        }
+
+        boolean isRenderedFrom(Video[] videos) {
+            if (videos.length != this.videos.length) {
+                return false;
+            }
+            for (int i = 0; i < videos.length; i++) {
+                if (videos[i] != this.videos[i] || videos[i].title != titles[i]) {
+                    return false;
+                }
+            }
+            return true;
         }
-        System.out.println("-------------------------------\n");
     }
 }
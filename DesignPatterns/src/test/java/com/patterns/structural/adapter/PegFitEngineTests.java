@@ -0,0 +1,147 @@
+package com.patterns.structural.adapter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PegFitEngineTests {
+
+    private static final double[] EDGE_RADII = {Double.NaN, -0.0, 0.0, Double.MIN_VALUE, Double.POSITIVE_INFINITY};
+
+    @Test
+    void adaptedRadiusMatchesSquarePegAdapter() {
+        double[] widths = widths(new Random(1), 10_000);
+        double[] radii = PegFitEngine.adaptedRadii(widths);
+
+        for (int i = 0; i < widths.length; i++) {
+            assertEquals(new SquarePegAdapter(new SquarePeg(widths[i])).getRadius(), radii[i]);
+        }
+    }
+
+    @Test
+    void holesFittingMatchesRoundHoleFits() {
+        Random random = new Random(2);
+        double[] holes = radii(random, 2_000);
+        double[] pegs = PegFitEngine.adaptedRadii(widths(random, 50_000));
+        PegFitEngine engine = new PegFitEngine(holes);
+        RoundHole[] roundHoles = new RoundHole[holes.length];
+        for (int h = 0; h < holes.length; h++) {
+            roundHoles[h] = new RoundHole(holes[h]);
+        }
+
+        int[] smallest = engine.smallestFitting(pegs);
+        for (int p = 0; p < pegs.length; p++) {
+            RoundPeg peg = new RoundPeg(pegs[p]);
+            BitSet expected = new BitSet();
+            for (int h = 0; h < holes.length; h++) {
+                if (roundHoles[h].fits(peg)) {
+                    expected.set(h);
+                }
+            }
+            BitSet actual = new BitSet();
+            for (int h : engine.holesFitting(pegs[p])) {
+                actual.set(h);
+            }
+            assertEquals(expected, actual, "peg " + pegs[p]);
+            assertEquals(expected.cardinality(), engine.countFitting(pegs[p]));
+            if (expected.isEmpty()) {
+                assertEquals(-1, smallest[p]);
+            } else {
+                assertTrue(expected.get(smallest[p]));
+                assertEquals(expected.stream().mapToDouble(h -> holes[h]).min().getAsDouble(), holes[smallest[p]]);
+            }
+        }
+    }
+
+    @Test
+    void handlesNaNAndSignedZero() {
+        PegFitEngine engine = new PegFitEngine(new double[]{Double.NaN, 0.0, -0.0, 1.0});
+
+        assertEquals(0, engine.countFitting(Double.NaN));
+        assertArrayEquals(new int[]{1, 2, 3}, sorted(engine.holesFitting(0.0)));
+        assertArrayEquals(new int[]{1, 2, 3}, sorted(engine.holesFitting(-0.0)));
+        assertArrayEquals(new int[]{3}, engine.holesFitting(Double.MIN_VALUE));
+    }
+
+    @Test
+    void assignmentPlacesAsManyPegsAsPossible() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            double[] holes = radii(random, 1 + random.nextInt(8));
+            double[] pegs = radii(random, 1 + random.nextInt(8));
+
+            int[] assignment = new PegFitEngine(holes).assign(pegs);
+
+            BitSet used = new BitSet();
+            int placed = 0;
+            for (int p = 0; p < pegs.length; p++) {
+                int hole = assignment[p];
+                if (hole >= 0) {
+                    assertTrue(new RoundHole(holes[hole]).fits(new RoundPeg(pegs[p])));
+                    assertTrue(!used.get(hole), "hole assigned twice");
+                    used.set(hole);
+                    placed++;
+                }
+            }
+            assertEquals(maxMatching(holes, pegs), placed);
+        }
+    }
+
+    /**
+     * Largest number of pegs that can be placed, by augmenting paths.
+     */
+    private static int maxMatching(double[] holes, double[] pegs) {
+        int[] pegOfHole = new int[holes.length];
+        Arrays.fill(pegOfHole, -1);
+        int matched = 0;
+        for (int p = 0; p < pegs.length; p++) {
+            if (augment(p, holes, pegs, pegOfHole, new boolean[holes.length])) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private static boolean augment(int peg, double[] holes, double[] pegs, int[] pegOfHole, boolean[] seen) {
+        for (int h = 0; h < holes.length; h++) {
+            if (!seen[h] && new RoundHole(holes[h]).fits(new RoundPeg(pegs[peg]))) {
+                seen[h] = true;
+                if (pegOfHole[h] < 0 || augment(pegOfHole[h], holes, pegs, pegOfHole, seen)) {
+                    pegOfHole[h] = peg;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static double[] radii(Random random, int count) {
+        double[] radii = new double[count];
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(10);
+            radii[i] = kind == 0 ? EDGE_RADII[random.nextInt(EDGE_RADII.length)]
+                    : kind < 4 ? random.nextInt(20) : random.nextDouble() * 20;
+        }
+        return radii;
+    }
+
+    private static double[] widths(Random random, int count) {
+        double[] widths = radii(random, count);
+        for (int i = 0; i < count; i++) {
+            widths[i] *= 1.5;
+        }
+        return widths;
+    }
+
+    private static int[] sorted(int[] values) {
+        int[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,95 @@
+package com.patterns.structural.decorator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompressionDecoratorTests {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void roundTripsInBlockMode() throws IOException {
+        byte[] data = content(10 * BLOCK_SIZE + 17);
+        CompressionDecorator source = new CompressionDecorator(new ByteArrayDataSource(), executor, BLOCK_SIZE);
+
+        source.writeFrom(new ByteArrayInputStream(data));
+
+        assertArrayEquals(data, readAll(source));
+    }
+
+    @Test
+    void readsRangesAcrossBlockBoundaries() throws IOException {
+        byte[] data = content(10 * BLOCK_SIZE + 17);
+        CompressionDecorator source = new CompressionDecorator(new ByteArrayDataSource(), executor, BLOCK_SIZE);
+        source.writeFrom(new ByteArrayInputStream(data));
+
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 3100), source.readRange(1000, 2100));
+        assertArrayEquals(Arrays.copyOfRange(data, 2 * BLOCK_SIZE, 3 * BLOCK_SIZE),
+                source.readRange(2 * BLOCK_SIZE, BLOCK_SIZE));
+        assertArrayEquals(Arrays.copyOfRange(data, data.length - 10, data.length),
+                source.readRange(data.length - 10, 100));
+    }
+
+    @Test
+    void rejectsTruncatedFrames() throws IOException {
+        byte[] data = content(4 * BLOCK_SIZE);
+        ByteArrayDataSource sink = new ByteArrayDataSource();
+        new CompressionDecorator(sink, executor, BLOCK_SIZE).writeFrom(new ByteArrayInputStream(data));
+        byte[] encoded = sink.toByteArray();
+        CompressionDecorator truncated = new CompressionDecorator(
+                new ByteArrayDataSource(Arrays.copyOf(encoded, encoded.length / 2)), executor, BLOCK_SIZE);
+
+        assertThrows(IOException.class, () -> readAll(truncated));
+    }
+
+    @Test
+    void rejectsHeadersLargerThanTheBlockSize() throws IOException {
+        ByteArrayOutputStream corrupt = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(corrupt);
+        out.write(0xC2);
+        out.writeInt(BLOCK_SIZE);
+        out.writeInt(Integer.MAX_VALUE);
+        out.writeInt(16);
+        CompressionDecorator source = new CompressionDecorator(
+                new ByteArrayDataSource(corrupt.toByteArray()), executor, BLOCK_SIZE);
+
+        assertThrows(IOException.class, () -> readAll(source));
+        assertThrows(IOException.class, () -> source.readRange(0, 10));
+    }
+
+    private static byte[] content(int length) {
+        // Compressible but not trivially so.
+        byte[] data = new byte[length];
+        Random random = new Random(42);
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+
+    private static byte[] readAll(DataSource source) throws IOException {
+        try (InputStream in = source.openInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.patterns.structural.decorator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataSourceChainTests {
+
+    private static final String SALARY_RECORDS = "Name,Salary\nJohn Smith,100000\nSteven Jobs,912000";
+
+    // Compression(Encryption(File)) output written before layers switched to raw bytes.
+    private static final String LEGACY_ENCODED = "Zkt7e1Q5eU8yUm1Qe0ZsdHJ2VXp6dDBKVnhrUHtUe0sxRUYx"
+            + "QkJIdjVLTVZ0dVI5Q2IwOXFISmVUMU5rcENCQmdxRlByaD4+";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsThroughCompressionAndEncryption() {
+        DataSource source = new CompressionDecorator(new EncryptionDecorator(
+                new FileDataSource(dir.resolve("out.dat").toString())));
+
+        source.writeData(SALARY_RECORDS);
+
+        assertEquals(SALARY_RECORDS, source.readData());
+    }
+
+    @Test
+    void readsLegacyBase64Format() throws IOException {
+        Path file = dir.resolve("legacy.txt");
+        Files.write(file, LEGACY_ENCODED.getBytes());
+
+        DataSource source = new CompressionDecorator(new EncryptionDecorator(new FileDataSource(file.toString())));
+
+        assertEquals(SALARY_RECORDS, source.readData());
+    }
+
+    @Test
+    void binaryChainIsSmallerThanLegacyFormat() throws IOException {
+        Path file = dir.resolve("out.dat");
+        new CompressionDecorator(new EncryptionDecorator(new FileDataSource(file.toString())))
+                .writeData(SALARY_RECORDS);
+
+        assertTrue(Files.size(file) < LEGACY_ENCODED.length());
+    }
+}
@@ -0,0 +1,141 @@
+package com.patterns.structural.decorator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindDecoratorTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void groupsQueuedRecordsIntoBatches() throws IOException {
+        Path file = dir.resolve("log.dat");
+        WriteBehindDecorator source = new WriteBehindDecorator(new FileDataSource(file.toString(), true),
+                1_000, 100, Duration.ofMillis(200));
+
+        for (int i = 0; i < 500; i++) {
+            source.writeData("r" + i + ";");
+        }
+        source.close();
+
+        assertEquals(500, source.getCommittedRecords());
+        assertTrue(source.getCommittedBatches() < 500);
+        assertTrue(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).endsWith("r499;"));
+    }
+
+    @Test
+    void flushWaitsForEveryQueuedRecord() throws IOException {
+        Path file = dir.resolve("log.dat");
+        WriteBehindDecorator source = new WriteBehindDecorator(new FileDataSource(file.toString(), true),
+                100, 10, Duration.ofSeconds(1));
+
+        source.writeData("a");
+        source.writeData("b");
+        source.flush();
+
+        assertEquals(2, source.getCommittedRecords());
+        assertEquals("ab", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        source.close();
+    }
+
+    @Test
+    void blocksWritersWhenTheQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        DataSource stalled = new ByteArrayDataSource() {
+            @Override
+            public OutputStream openOutputStream() {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.openOutputStream();
+            }
+        };
+        WriteBehindDecorator source = new WriteBehindDecorator(stalled, 2, 1, Duration.ZERO);
+        CountDownLatch written = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            // One record is held by the stalled commit, two fill the queue, the fourth has to wait.
+            for (int i = 0; i < 4; i++) {
+                source.writeData("x");
+            }
+            written.countDown();
+        });
+        writer.start();
+
+        assertFalse(written.await(300, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        source.close();
+        assertEquals(4, source.getCommittedRecords());
+    }
+
+    @Test
+    void reportsUncheckedSinkFailuresAndKeepsDraining() throws IOException {
+        DataSource failing = new ByteArrayDataSource() {
+            private boolean failed;
+
+            @Override
+            public OutputStream openOutputStream() {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("sink down");
+                }
+                return super.openOutputStream();
+            }
+        };
+        WriteBehindDecorator source = new WriteBehindDecorator(failing, 10, 1, Duration.ZERO);
+
+        source.writeData("a");
+        IOException ex = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(IOException.class, source::flush));
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+
+        source.writeData("b");
+        assertTimeoutPreemptively(Duration.ofSeconds(5), source::close);
+        assertEquals(2, source.getCommittedRecords());
+        assertEquals("b", failing.readData());
+    }
+
+    @Test
+    void closeCommitsConcurrentWritesAndRejectsLaterOnes() throws IOException {
+        Path file = dir.resolve("log.dat");
+        WriteBehindDecorator source = new WriteBehindDecorator(new FileDataSource(file.toString(), true),
+                16, 4, Duration.ofMillis(1));
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 1_000; i++) {
+                        try (OutputStream out = source.openOutputStream()) {
+                            out.write('x');
+                        }
+                    }
+                } catch (IOException ex) {
+                    // Closed under our feet, expected.
+                }
+            });
+            writers[t].start();
+        }
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), source::close);
+        assertEquals(source.getCommittedRecords(), Files.size(file));
+        assertThrows(IOException.class, source::openOutputStream);
+    }
+}
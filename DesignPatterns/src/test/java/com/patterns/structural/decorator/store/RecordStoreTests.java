@@ -0,0 +1,132 @@
+package com.patterns.structural.decorator.store;
+
+import com.patterns.structural.decorator.CompressionDecorator;
+import com.patterns.structural.decorator.DataSource;
+import com.patterns.structural.decorator.EncryptionDecorator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordStoreTests {
+
+    private static final UnaryOperator<DataSource> CHAIN = s -> new CompressionDecorator(new EncryptionDecorator(s));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsPutsAndDeletesAcrossReopen() throws IOException {
+        try (RecordStore store = new RecordStore(dir, CHAIN, 4, 1 << 20)) {
+            for (int i = 0; i < 10; i++) {
+                store.put("k" + i, "v" + i);
+            }
+            store.put("k1", "updated");
+            store.delete("k2");
+            assertEquals("updated", store.get("k1"));
+            assertNull(store.get("k2"));
+        }
+
+        try (RecordStore store = new RecordStore(dir, CHAIN, 4, 1 << 20)) {
+            assertEquals("v0", store.get("k0"));
+            assertEquals("updated", store.get("k1"));
+            assertNull(store.get("k2"));
+            assertEquals("v9", store.get("k9"));
+            assertEquals(9, store.keys().size());
+        }
+    }
+
+    @Test
+    void compactKeepsLiveKeysAndDeletesOldSegments() throws IOException {
+        RecordStore store = new RecordStore(dir, CHAIN, 2, 64);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 20; i++) {
+                store.put("k" + i, "v" + round + "-" + i);
+            }
+        }
+        for (int i = 0; i < 20; i += 2) {
+            store.delete("k" + i);
+        }
+        store.flush();
+        List<Path> before = segments();
+        assertTrue(before.size() > 1);
+        assertTrue(store.getObsoleteRecords() > 0);
+
+        store.compact();
+
+        assertEquals(0, store.getObsoleteRecords());
+        List<Path> after = segments();
+        for (Path segment : before) {
+            assertFalse(after.contains(segment), segment + " should have been deleted");
+        }
+        try (RecordStore reopened = new RecordStore(dir, CHAIN, 2, 64)) {
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i % 2 == 0 ? null : "v2-" + i, reopened.get("k" + i));
+            }
+        }
+    }
+
+    @Test
+    void dropsATruncatedLastFrame() throws IOException {
+        try (RecordStore store = new RecordStore(dir, CHAIN, 2, 1 << 20)) {
+            for (int i = 0; i < 6; i++) {
+                store.put("k" + i, "v" + i);
+            }
+        }
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        // A crash in the middle of an append: the frame claims more bytes than were written.
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(segment, StandardOpenOption.APPEND))) {
+            out.writeInt(1_000);
+            out.write(new byte[10]);
+        }
+
+        try (RecordStore store = new RecordStore(dir, CHAIN, 2, 1 << 20)) {
+            assertEquals(size, Files.size(segment));
+            assertEquals("v5", store.get("k5"));
+            store.put("k6", "v6");
+        }
+        try (RecordStore store = new RecordStore(dir, CHAIN, 2, 1 << 20)) {
+            assertEquals("v6", store.get("k6"));
+        }
+    }
+
+    @Test
+    void rebuildsAStaleIndex() throws IOException {
+        RecordStore store = new RecordStore(dir, CHAIN, 2, 1 << 20);
+        store.put("a", "1");
+        store.put("b", "2");
+        store.flush();
+        // Full blocks are appended right away, the index only on flush: simulate a crash before it.
+        store.put("c", "3");
+        store.put("a", "4");
+
+        RecordStore reopened = new RecordStore(dir, CHAIN, 2, 1 << 20);
+
+        assertEquals(Set.of("a", "b", "c"), reopened.keys());
+        assertEquals("4", reopened.get("a"));
+        assertEquals("3", reopened.get("c"));
+        assertEquals(1, reopened.getObsoleteRecords());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.patterns.structural.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class SingleFlightTests {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, Object> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object value = new Object();
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(callers.submit(() -> flight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return value;
+                })));
+            }
+            awaitShared(flight, CALLERS - 1);
+            release.countDown();
+
+            for (Future<Object> result : results) {
+                assertSame(value, result.get());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoadReachesEveryWaiterAndIsNotCached() throws Exception {
+        SingleFlight<String, Object> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("backend down");
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(callers.submit(() -> flight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    throw failure;
+                })));
+            }
+            awaitShared(flight, CALLERS - 1);
+            release.countDown();
+
+            for (Future<Object> result : results) {
+                Exception ex = assertThrows(Exception.class, result::get);
+                assertSame(failure, ex.getCause());
+            }
+            assertEquals(1, loads.get());
+            assertEquals("fresh", flight.execute("key", () -> "fresh"));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static void awaitShared(SingleFlight<?, ?> flight, long count) {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (flight.getSharedCount() < count) {
+                Thread.sleep(1);
+            }
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
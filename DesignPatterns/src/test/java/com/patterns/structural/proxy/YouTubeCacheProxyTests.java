@@ -0,0 +1,68 @@
+package com.patterns.structural.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class YouTubeCacheProxyTests {
+
+    @Test
+    void servesStalePopularListWhileOneRefreshRuns() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ThirdPartyYouTubeLib service = new ThirdPartyYouTubeLib() {
+            @Override
+            public HashMap<String, Video> popularVideos() {
+                int fetch = fetches.incrementAndGet();
+                if (fetch > 1) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                HashMap<String, Video> videos = new HashMap<>();
+                videos.put("list", new Video("list", "v" + fetch));
+                return videos;
+            }
+
+            @Override
+            public Video getVideo(String videoId) {
+                return new Video(videoId, videoId);
+            }
+        };
+        YouTubeCacheProxy proxy = new YouTubeCacheProxy(service, 100, Duration.ofMinutes(10));
+        proxy.setPopularTtl(Duration.ofMillis(200), Duration.ofMinutes(10));
+        assertEquals("v1", proxy.popularVideos().get("list").title);
+        Thread.sleep(250);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertEquals("v1", proxy.popularVideos().get("list").title);
+            while (fetches.get() < 2) {
+                Thread.sleep(1);
+            }
+            // The refresh is blocked: every call must still return the stale list right away.
+            for (int i = 0; i < 20; i++) {
+                assertEquals("v1", proxy.popularVideos().get("list").title);
+            }
+        });
+        assertEquals(2, fetches.get());
+
+        release.countDown();
+        String refreshed = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            String title = proxy.popularVideos().get("list").title;
+            while ("v1".equals(title)) {
+                Thread.sleep(1);
+                title = proxy.popularVideos().get("list").title;
+            }
+            return title;
+        });
+        assertEquals("v2", refreshed);
+    }
+}